@@ -15,16 +15,24 @@ package org.bahmni.module.fhir2addlextension;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.bahmni.module.fhir2addlextension.api.helper.DrugNameIndex;
+import org.bahmni.module.fhir2addlextension.api.translator.PersonAttributeExtensionTranslator;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
 import org.openmrs.module.ModuleActivator;
 
 /**
  * This class contains the logic that is run every time this module is either started or shutdown
  */
-public class Fhir2AddlExtensionModuleActivator extends BaseModuleActivator {
+public class Fhir2AddlExtensionModuleActivator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	private Log log = LogFactory.getLog(this.getClass());
 	
+	private DaemonToken daemonToken;
+	
 	/**
 	 * @see ModuleActivator#willStart()
 	 */
@@ -43,6 +51,49 @@ public class Fhir2AddlExtensionModuleActivator extends BaseModuleActivator {
 	public void started() {
 		super.started();
 		log.info("FHIR2 Additional Extension Module Started");
+		buildDrugNameIndex();
+		buildPersonAttributeSlugIndex();
+	}
+	
+	@Override
+	public void setDaemonToken(DaemonToken token) {
+		this.daemonToken = token;
+	}
+	
+	/**
+	 * Builds the drug name index in the background, Medication name searches use the database until it is built
+	 */
+	private void buildDrugNameIndex() {
+		if (daemonToken == null) {
+			return;
+		}
+		Daemon.runInDaemonThread(() -> {
+			try {
+				Context.getRegisteredComponents(DrugNameIndex.class).forEach(DrugNameIndex::rebuild);
+			}
+			catch (Exception e) {
+				log.error("Failed to build the drug name index", e);
+			}
+		}, daemonToken);
+	}
+	
+	/**
+	 * Builds the person attribute slug index in the background, so the first Patient translations do not load every
+	 * attribute type
+	 */
+	private void buildPersonAttributeSlugIndex() {
+		if (daemonToken == null) {
+			return;
+		}
+		Daemon.runInDaemonThread(() -> {
+			try {
+				Context.getRegisteredComponents(PersonAttributeExtensionTranslator.class).forEach(
+				    PersonAttributeExtensionTranslator::getSlugToTypeMap);
+			}
+			catch (Exception e) {
+				log.error("Failed to build the person attribute slug index", e);
+			}
+		}, daemonToken);
 	}
 	
 	@Override
@@ -0,0 +1,40 @@
+package org.bahmni.module.fhir2addlextension.advice;
+
+import org.bahmni.module.fhir2addlextension.api.helper.DrugNameIndex;
+import org.openmrs.Concept;
+import org.openmrs.Drug;
+import org.springframework.aop.AfterReturningAdvice;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Method;
+
+import static org.bahmni.module.fhir2addlextension.api.utils.ModuleUtils.runAfterCommit;
+
+/**
+ * Keeps the drug name index up to date as drugs and their concepts are changed through the ConceptService. The index
+ * is only changed once the transaction saving the drug or concept has committed, so searches never see changes that
+ * are rolled back.
+ */
+public class DrugNameIndexUpdateAdvice implements AfterReturningAdvice {
+	
+	@Autowired
+	private DrugNameIndex drugNameIndex;
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object conceptService) throws Throwable {
+		if (args.length == 0) {
+			return;
+		}
+		if (args[0] instanceof Drug) {
+			Drug drug = (Drug) args[0];
+			if ("purgeDrug".equals(method.getName())) {
+				runAfterCommit(() -> drugNameIndex.remove(drug));
+			} else {
+				runAfterCommit(() -> drugNameIndex.update(drug));
+			}
+		} else if (args[0] instanceof Concept) {
+			Concept concept = (Concept) args[0];
+			runAfterCommit(() -> drugNameIndex.updateConcept(concept));
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.bahmni.module.fhir2addlextension.advice;
+
+import org.bahmni.module.fhir2addlextension.api.translator.PersonAttributeExtensionTranslator;
+import org.springframework.aop.AfterReturningAdvice;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Method;
+
+import static org.bahmni.module.fhir2addlextension.api.utils.ModuleUtils.runAfterCommit;
+
+/**
+ * Clears the person attribute slug map after person attribute types are changed through the PersonService. The map
+ * is cleared once the change has committed, so a concurrent translation cannot build it again from the old types.
+ */
+public class PersonAttributeTypeChangeAdvice implements AfterReturningAdvice {
+	
+	@Autowired
+	private PersonAttributeExtensionTranslator personAttributeExtensionTranslator;
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object personService) throws Throwable {
+		runAfterCommit(personAttributeExtensionTranslator::clearSlugToTypeMap);
+	}
+}
@@ -0,0 +1,25 @@
+package org.bahmni.module.fhir2addlextension.advice;
+
+import org.bahmni.module.fhir2addlextension.api.helper.ValueSetExpansionCache;
+import org.springframework.aop.AfterReturningAdvice;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Method;
+
+import static org.bahmni.module.fhir2addlextension.api.utils.ModuleUtils.runAfterCommit;
+
+/**
+ * Clears cached ValueSet expansions after concepts are changed through the ConceptService. The cache
+ * is cleared once the change has committed, so a concurrent expansion cannot cache the old members
+ * again.
+ */
+public class ValueSetExpansionCacheEvictAdvice implements AfterReturningAdvice {
+	
+	@Autowired
+	private ValueSetExpansionCache valueSetExpansionCache;
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object conceptService) throws Throwable {
+		runAfterCommit(valueSetExpansionCache::clear);
+	}
+}
@@ -21,6 +21,8 @@ public final class BahmniFhirConstants {
 	public static final String ORDER_TYPE_SYSTEM_URI = BAHMNI_CODE_SYSTEM_PREFIX + "/order-type";
 	
 	public static final String SP_NUMBER_OF_VISITS = "numberOfVisits";
+
+	public static final String NUMBER_OF_VISITS_SEARCH_HANDLER = "numberOfVisits.search.handler";
 	
 	public static final String LAB_TEST_CONCEPT_CLASS = "LabTest";
 	
@@ -0,0 +1,146 @@
+package org.bahmni.module.fhir2addlextension.api.context;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.Reference;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the OpenMRS objects that references resolve to while a bundle is processed on the current thread, so the
+ * Patient, Encounter, Practitioner, Location and order references repeated across the entries of a bundle are looked
+ * up once per bundle. Only literal references that resolved to an object are kept, as an entry may create what a
+ * later entry refers to. Outside of a bundle operation references are resolved as they always are.
+ * <p>
+ * Bundle operations may call each other; the scope lasts until the outermost one ends, which logs how many
+ * resolutions the bundle needed and how many were answered from the scope.
+ */
+@Slf4j
+public class ReferenceResolutionContextHolder {
+	
+	private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+	
+	/**
+	 * Runs a bundle operation with references resolved once for all of its entries
+	 */
+	public static <T> T withinBundle(Supplier<T> bundleOperation) {
+		open();
+		try {
+			return bundleOperation.get();
+		}
+		finally {
+			close();
+		}
+	}
+	
+	public static void open() {
+		Scope scope = SCOPE.get();
+		if (scope == null) {
+			SCOPE.set(new Scope());
+		} else {
+			scope.depth++;
+		}
+	}
+	
+	public static void close() {
+		Scope scope = SCOPE.get();
+		if (scope == null) {
+			return;
+		}
+		if (scope.depth > 0) {
+			scope.depth--;
+			return;
+		}
+		SCOPE.remove();
+		log.info("Resolved {} references in bundle, {} of them without a lookup", scope.resolutionCount, scope.hitCount);
+	}
+	
+	public static boolean isOpen() {
+		return SCOPE.get() != null;
+	}
+	
+	public static boolean isResolved(String translatorName, Reference reference) {
+		Scope scope = SCOPE.get();
+		return scope != null && reference != null && reference.hasReference()
+		        && scope.resolvedReferences.containsKey(toKey(translatorName, reference));
+	}
+	
+	/**
+	 * Keeps an object looked up together with others, so that resolving its reference later in the bundle operation
+	 * does not look it up again. Does nothing outside of a bundle operation.
+	 */
+	public static void remember(String translatorName, Reference reference, Object resolved) {
+		Scope scope = SCOPE.get();
+		if (scope == null || reference == null || !reference.hasReference() || resolved == null) {
+			return;
+		}
+		scope.resolvedReferences.putIfAbsent(toKey(translatorName, reference), resolved);
+	}
+	
+	/**
+	 * @return the objects references have resolved to so far in the bundle operation, compared by identity
+	 */
+	public static Set<Object> getResolvedObjects() {
+		Set<Object> resolvedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+		Scope scope = SCOPE.get();
+		if (scope != null) {
+			resolvedObjects.addAll(scope.resolvedReferences.values());
+		}
+		return resolvedObjects;
+	}
+	
+	/**
+	 * @param translatorName distinguishes translators that resolve the same reference to different objects
+	 * @param reference the reference to resolve
+	 * @param resolver resolves the reference when the scope has not resolved it yet
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T resolve(String translatorName, Reference reference, Function<Reference, T> resolver) {
+		Scope scope = SCOPE.get();
+		if (scope == null || reference == null || !reference.hasReference()) {
+			return resolver.apply(reference);
+		}
+		scope.resolutionCount++;
+		String key = toKey(translatorName, reference);
+		Object resolved = scope.resolvedReferences.get(key);
+		if (resolved != null) {
+			scope.hitCount++;
+			return (T) resolved;
+		}
+		T result = resolver.apply(reference);
+		if (result != null) {
+			scope.resolvedReferences.put(key, result);
+		}
+		return result;
+	}
+	
+	public static int getResolutionCount() {
+		Scope scope = SCOPE.get();
+		return scope == null ? 0 : scope.resolutionCount;
+	}
+	
+	public static int getHitCount() {
+		Scope scope = SCOPE.get();
+		return scope == null ? 0 : scope.hitCount;
+	}
+	
+	private static String toKey(String translatorName, Reference reference) {
+		return translatorName + "|" + reference.getReference();
+	}
+	
+	private static class Scope {
+		
+		private final Map<String, Object> resolvedReferences = new HashMap<>();
+		
+		private int depth = 0;
+		
+		private int resolutionCount = 0;
+		
+		private int hitCount = 0;
+	}
+}
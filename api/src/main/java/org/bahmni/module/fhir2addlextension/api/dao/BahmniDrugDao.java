@@ -0,0 +1,24 @@
+package org.bahmni.module.fhir2addlextension.api.dao;
+
+import org.openmrs.Drug;
+import org.openmrs.annotation.Authorized;
+import org.openmrs.util.PrivilegeConstants;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BahmniDrugDao {
+	
+	/**
+	 * @return all non retired drugs, with their concept and its names loaded in the same query
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	List<Drug> getAllDrugsWithConceptNames();
+	
+	/**
+	 * @param drugIds ids of the drugs to load
+	 * @return the drugs with the given ids, in the order of the ids
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	List<Drug> getDrugsByIds(List<Integer> drugIds);
+}
@@ -0,0 +1,22 @@
+package org.bahmni.module.fhir2addlextension.api.dao;
+
+import org.openmrs.DrugOrder;
+import org.openmrs.Order;
+import org.openmrs.annotation.Authorized;
+import org.openmrs.module.fhir2.api.dao.FhirMedicationRequestDao;
+import org.openmrs.util.PrivilegeConstants;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BahmniFhirMedicationRequestDao extends FhirMedicationRequestDao {
+	
+	/**
+	 * Looks up the discontinuation orders of the stopped orders among the given ones with a single query, instead of
+	 * OrderService#getDiscontinuationOrder for each of them.
+	 *
+	 * @return the discontinuation order of each stopped order by its id, or null for stopped orders that have none
+	 */
+	@Authorized({ PrivilegeConstants.GET_ORDERS })
+	Map<Integer, Order> getDiscontinuationOrders(Collection<DrugOrder> drugOrders);
+}
@@ -4,10 +4,45 @@ import org.openmrs.Obs;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.util.PrivilegeConstants;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
+import static org.bahmni.module.fhir2addlextension.api.PrivilegeConstants.DELETE_OBSERVATIONS;
+
 public interface BahmniObsDao {
 	
 	@Authorized(PrivilegeConstants.EDIT_OBS)
 	void updateObsMember(Obs obsGroup, Set<Obs> groupMembers);
+	
+	/**
+	 * Same as {@link #updateObsMember(Obs, Set)} for a number of groups at once. The session is flushed once and the
+	 * members of all groups are updated in a single JDBC batch.
+	 */
+	@Authorized(PrivilegeConstants.EDIT_OBS)
+	void updateObsMembers(Map<Obs, Set<Obs>> groupMembersByGroup);
+	
+	/**
+	 * @param uuids obs uuids to look up
+	 * @return the given uuids that belong to obs, voided or not like the obs found by uuid, looked up with a single query
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	Set<String> getExistingObsUuids(Collection<String> uuids);
+	
+	/**
+	 * Loads the given obs and their group members into the session, together with what translating them reads: the
+	 * concepts with their names and mappings, the person, the encounter and the order. This takes a few queries in
+	 * all, instead of lazy loads for every obs.
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	void prefetchForTranslation(Collection<Obs> obs);
+	
+	/**
+	 * Voids the given obs and their group members, at any depth, with a bulk update per level of the obs groups, and
+	 * sets the same audit fields as voiding them one by one.
+	 * 
+	 * @return the number of obs voided
+	 */
+	@Authorized(DELETE_OBSERVATIONS)
+	int voidObs(Collection<Obs> obs, String voidReason);
 }
@@ -0,0 +1,23 @@
+package org.bahmni.module.fhir2addlextension.api.dao;
+
+import org.openmrs.Concept;
+import org.openmrs.annotation.Authorized;
+import org.openmrs.util.PrivilegeConstants;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ConceptSetMemberDao {
+	
+	/**
+	 * Loads the set members of a number of concept sets with a single query, fetching the names and class of each
+	 * member along with it.
+	 * 
+	 * @param conceptSets concept sets whose members to load
+	 * @return set members in sort weight order, keyed by the uuid of their concept set. Concepts without members are
+	 *         not included.
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	Map<String, List<Concept>> getSetMembers(Collection<Concept> conceptSets);
+}
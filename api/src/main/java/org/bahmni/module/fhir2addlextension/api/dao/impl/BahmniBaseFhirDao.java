@@ -1,48 +1,134 @@
 package org.bahmni.module.fhir2addlextension.api.dao.impl;
 
 import ca.uhn.fhir.rest.param.NumberParam;
-import ca.uhn.fhir.rest.param.ReferenceAndListParam;
-import ca.uhn.fhir.rest.param.ReferenceOrListParam;
-import ca.uhn.fhir.rest.param.ReferenceParam;
+import org.bahmni.module.fhir2addlextension.api.search.param.KeysetPagingState;
 import org.hibernate.Criteria;
-import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
 import org.openmrs.Auditable;
-import org.openmrs.Encounter;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.Visit;
 import org.openmrs.module.fhir2.api.dao.impl.BaseFhirDao;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public abstract class BahmniBaseFhirDao<T extends OpenmrsObject & Auditable> extends BaseFhirDao<T> {
-	
-	public ReferenceAndListParam getEncounterReferencesByNumberOfVisit(NumberParam numberOfVisitsParam,
-	        ReferenceParam patientReferenceParam) {
-		Session currentSession = super.getSessionFactory().getCurrentSession();
-		
-		Criteria visitCriteria = currentSession.createCriteria(Visit.class, "v");
-		ReferenceAndListParam referenceAndListParam = new ReferenceAndListParam();
-		referenceAndListParam.addAnd(new ReferenceOrListParam().add(patientReferenceParam));
-		handlePatientReference(visitCriteria, referenceAndListParam);
-		visitCriteria.addOrder(Order.desc("v.startDatetime"));
-		visitCriteria.setMaxResults(numberOfVisitsParam.getValue().intValue());
-		visitCriteria.setProjection(Projections.property("v.visitId"));
-		
-		List<Integer> lastNVisitIds = (List<Integer>) visitCriteria.list();
-		Criteria encounterSubquery = currentSession.createCriteria(Encounter.class, "e").createAlias("e.visit", "v")
-		        .add(Restrictions.in("v.visitId", lastNVisitIds)).setProjection(Projections.property("e.uuid"));
-		List<String> encounterUUIDS = (List<String>) encounterSubquery.list();
-		
-		if (encounterUUIDS.isEmpty())
-			return null;
-		ReferenceOrListParam encounterReferenceOrListParam = new ReferenceOrListParam();
-		for (String encounterUUID : encounterUUIDS) {
-			encounterReferenceOrListParam.add(new ReferenceParam(encounterUUID));
-		}
-		return new ReferenceAndListParam().addAnd(encounterReferenceOrListParam);
-		
+
+	private final Map<SearchParameterMap, KeysetPagingState> keysetPagingStates = Collections
+	        .synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * A page of a search without an explicit sort, following a page whose results came back in id order, is loaded
+	 * by seeking past the id of that page's last result rather than by skipping an offset. It is ordered by id itself,
+	 * so the page after it can be loaded the same way. This keeps deep pages as fast as the first one. Every other
+	 * page is loaded by offset in the search's own order. The given search parameters are never changed; the page to
+	 * seek is described by a copy of them.
+	 */
+	@Override
+	public List<T> getSearchResults(@Nonnull SearchParameterMap theParams) {
+		if (theParams.getSortSpec() != null) {
+			return super.getSearchResults(theParams);
+		}
+
+		int fromIndex = theParams.getFromIndex();
+		int toIndex = theParams.getToIndex();
+		KeysetPagingState pagingState = keysetPagingStates.computeIfAbsent(theParams, params -> new KeysetPagingState());
+		Integer lastId = fromIndex > 0 ? pagingState.getLastIdBefore(fromIndex) : null;
+		List<T> results = lastId == null ? super.getSearchResults(theParams)
+		        : super.getSearchResults(new KeysetPageParameterMap(theParams, lastId,
+		            toIndex == Integer.MAX_VALUE ? toIndex : toIndex - fromIndex));
+
+		Integer pageLastId = getLastIdInIdOrder(results);
+		if (pageLastId != null) {
+			pagingState.recordLastId(fromIndex + results.size(), pageLastId);
+		}
+		return results;
+	}
+
+	/**
+	 * The id order and the keyset restriction only apply to the results query of a page continuing from the last id of
+	 * the page before it, not to the query counting the search's results.
+	 */
+	@Override
+	protected void setupSearchParams(Criteria criteria, SearchParameterMap theParams) {
+		super.setupSearchParams(criteria, theParams);
+		if (theParams instanceof KeysetPageParameterMap) {
+			criteria.add(keysetRestriction(((KeysetPageParameterMap) theParams).lastId));
+			criteria.addOrder(Order.asc("id"));
+		}
+	}
+
+	/**
+	 * @return the restriction to results following the one with the given id, in id order
+	 */
+	public static Criterion keysetRestriction(Integer lastId) {
+		return Restrictions.gt("id", lastId);
+	}
+
+	/**
+	 * Restricts the results to those whose encounter belongs to one of the last N visits of the patient, ordered by
+	 * visit start date. The visit rank is computed by a correlated subquery counting the later visits of the same
+	 * patient, so the restriction is part of the search query itself. Visits starting at the same time are ranked by
+	 * visit id. The searched entity must have an "encounter" property.
+	 */
+	protected void handleNumberOfVisits(Criteria criteria, NumberParam numberOfVisitsParam) {
+		if (numberOfVisitsParam == null || numberOfVisitsParam.getValue() == null) {
+			return;
+		}
+
+		if (lacksAlias(criteria, "e")) {
+			criteria.createAlias("encounter", "e");
+		}
+		if (lacksAlias(criteria, "ev")) {
+			criteria.createAlias("e.visit", "ev");
+		}
+
+		DetachedCriteria laterVisits = DetachedCriteria.forClass(Visit.class, "lv")
+		        .add(Restrictions.eqProperty("lv.patient", "ev.patient"))
+		        .add(Restrictions.or(Restrictions.gtProperty("lv.startDatetime", "ev.startDatetime"), Restrictions.and(
+		            Restrictions.eqProperty("lv.startDatetime", "ev.startDatetime"),
+		            Restrictions.gtProperty("lv.visitId", "ev.visitId"))))
+		        .setProjection(Projections.rowCount());
+
+		criteria.add(Subqueries.gt((long) numberOfVisitsParam.getValue().intValue(), laterVisits));
+	}
+
+	/**
+	 * @return the id of the last result, or null if there are none or they are not in id order
+	 */
+	private static Integer getLastIdInIdOrder(List<? extends OpenmrsObject> results) {
+		Integer lastId = null;
+		for (OpenmrsObject result : results) {
+			if (lastId != null && result.getId() <= lastId) {
+				return null;
+			}
+			lastId = result.getId();
+		}
+		return lastId;
+	}
+
+	/**
+	 * The parameters of one page of a search, starting after the result with the given id
+	 */
+	private static class KeysetPageParameterMap extends SearchParameterMap {
+
+		private final Integer lastId;
+
+		private KeysetPageParameterMap(SearchParameterMap searchParams, Integer lastId, int pageSize) {
+			searchParams.getParameters().forEach(entry -> entry.getValue().forEach(
+			    param -> addParameter(entry.getKey(), param.getPropertyName(), (Serializable) param.getParam())));
+			setToIndex(pageSize);
+			this.lastId = lastId;
+		}
 	}
 }
@@ -0,0 +1,48 @@
+package org.bahmni.module.fhir2addlextension.api.dao.impl;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
+import org.hibernate.SessionFactory;
+import org.openmrs.Drug;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class BahmniDrugDaoImpl implements BahmniDrugDao {
+	
+	@Getter(AccessLevel.PUBLIC)
+	@Setter(value = AccessLevel.PROTECTED, onMethod = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public List<Drug> getAllDrugsWithConceptNames() {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("select distinct d from Drug d left join fetch d.concept c left join fetch c.names"
+		                + " where d.retired = false", Drug.class)
+		        .list();
+	}
+	
+	@Override
+	public List<Drug> getDrugsByIds(List<Integer> drugIds) {
+		if (drugIds == null || drugIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<Integer, Drug> drugsById = sessionFactory.getCurrentSession()
+		        .createQuery("from Drug d where d.drugId in (:drugIds)", Drug.class).setParameterList("drugIds", drugIds)
+		        .list().stream().collect(Collectors.toMap(Drug::getDrugId, Function.identity()));
+		List<Drug> drugs = new ArrayList<>(drugIds.size());
+		drugIds.stream().map(drugsById::get).filter(Objects::nonNull).forEach(drugs::add);
+		return drugs;
+	}
+}
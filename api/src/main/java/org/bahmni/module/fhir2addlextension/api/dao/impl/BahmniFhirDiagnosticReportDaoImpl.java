@@ -10,7 +10,6 @@ import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.Order;
-import org.openmrs.module.fhir2.api.dao.impl.BaseFhirDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.springframework.stereotype.Component;
 
@@ -25,10 +24,11 @@ import java.util.Optional;
 import static org.hibernate.criterion.Restrictions.eq;
 
 @Component("bahmniFhirDiagnosticReportDao")
-public class BahmniFhirDiagnosticReportDaoImpl extends BaseFhirDao<FhirDiagnosticReportExt> implements BahmniFhirDiagnosticReportDao {
+public class BahmniFhirDiagnosticReportDaoImpl extends BahmniBaseFhirDao<FhirDiagnosticReportExt> implements BahmniFhirDiagnosticReportDao {
 	
 	@Override
     protected void setupSearchParams(Criteria criteria, SearchParameterMap theParams) {
+        super.setupSearchParams(criteria, theParams);
         theParams.getParameters().forEach((entry) -> {
             switch (entry.getKey()) {
                 case FhirConstants.ENCOUNTER_REFERENCE_SEARCH_HANDLER:
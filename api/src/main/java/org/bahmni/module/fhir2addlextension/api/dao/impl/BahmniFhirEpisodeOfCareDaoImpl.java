@@ -5,12 +5,11 @@ import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirEpisodeOfCareDao;
 import org.hibernate.Criteria;
 import org.openmrs.module.episodes.Episode;
 import org.openmrs.module.fhir2.FhirConstants;
-import org.openmrs.module.fhir2.api.dao.impl.BaseFhirDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.springframework.stereotype.Component;
 
 @Component
-public class BahmniFhirEpisodeOfCareDaoImpl extends BaseFhirDao<Episode> implements BahmniFhirEpisodeOfCareDao {
+public class BahmniFhirEpisodeOfCareDaoImpl extends BahmniBaseFhirDao<Episode> implements BahmniFhirEpisodeOfCareDao {
 	
 	@Override
     protected void setupSearchParams(Criteria criteria, SearchParameterMap theParams) {
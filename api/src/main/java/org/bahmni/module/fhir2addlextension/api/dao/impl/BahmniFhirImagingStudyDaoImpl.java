@@ -5,12 +5,11 @@ import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirImagingStudyDao;
 import org.bahmni.module.fhir2addlextension.api.model.FhirImagingStudy;
 import org.hibernate.Criteria;
 import org.openmrs.module.fhir2.FhirConstants;
-import org.openmrs.module.fhir2.api.dao.impl.BaseFhirDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.springframework.stereotype.Component;
 
 @Component
-public class BahmniFhirImagingStudyDaoImpl extends BaseFhirDao<FhirImagingStudy> implements BahmniFhirImagingStudyDao {
+public class BahmniFhirImagingStudyDaoImpl extends BahmniBaseFhirDao<FhirImagingStudy> implements BahmniFhirImagingStudyDao {
 	
 	@Override
 	protected void setupSearchParams(Criteria criteria, SearchParameterMap theParams) {
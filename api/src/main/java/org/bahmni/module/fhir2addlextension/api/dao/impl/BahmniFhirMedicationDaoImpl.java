@@ -2,7 +2,9 @@ package org.bahmni.module.fhir2addlextension.api.dao.impl;
 
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
 import org.bahmni.module.fhir2addlextension.api.dao.FhirConceptCodeSystemQuery;
+import org.bahmni.module.fhir2addlextension.api.helper.DrugNameIndex;
 import org.hibernate.criterion.Criterion;
 import org.openmrs.Drug;
 import org.openmrs.api.ConceptService;
@@ -25,12 +27,24 @@ public class BahmniFhirMedicationDaoImpl extends FhirMedicationDaoImpl implement
 	@Autowired
 	private ConceptService conceptService;
 	
+	@Autowired
+	private DrugNameIndex drugNameIndex;
+	
+	@Autowired
+	private BahmniDrugDao drugDao;
+	
 	@Override
 	public List<Drug> getSearchResults(@Nonnull SearchParameterMap theParams) {
 		List<PropParam<?>> nameSearchParams = theParams.getParameters(FhirConstants.NAME_SEARCH_HANDLER);
 		if (nameSearchParams.isEmpty())
 			return super.getSearchResults(theParams);
 		String searchPhrase = getSearchPhrase(theParams);
+		List<Integer> indexedDrugIds = drugNameIndex.search(searchPhrase);
+		if (indexedDrugIds != null) {
+			int fromIndex = Math.min(theParams.getFromIndex(), indexedDrugIds.size());
+			int toIndex = Math.min(theParams.getToIndex(), indexedDrugIds.size());
+			return drugDao.getDrugsByIds(indexedDrugIds.subList(fromIndex, Math.max(fromIndex, toIndex)));
+		}
 		Integer maxResults = null;
 		if (theParams.getToIndex() != Integer.MAX_VALUE) {
 			maxResults = theParams.getToIndex() - theParams.getFromIndex();
@@ -44,6 +58,10 @@ public class BahmniFhirMedicationDaoImpl extends FhirMedicationDaoImpl implement
 		if (nameSearchParams.isEmpty())
 			return super.getSearchResultsCount(theParams);
 		String searchPhrase = getSearchPhrase(theParams);
+		List<Integer> indexedDrugIds = drugNameIndex.search(searchPhrase);
+		if (indexedDrugIds != null) {
+			return indexedDrugIds.size();
+		}
 		return conceptService.getCountOfDrugs(searchPhrase, null, true, true, false);
 	}
 	
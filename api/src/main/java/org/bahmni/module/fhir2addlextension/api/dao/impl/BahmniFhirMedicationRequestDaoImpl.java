@@ -1,8 +1,10 @@
 package org.bahmni.module.fhir2addlextension.api.dao.impl;
 
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirMedicationRequestDao;
 import org.bahmni.module.fhir2addlextension.api.dao.FhirConceptCodeSystemQuery;
 import org.hibernate.criterion.Criterion;
 import org.openmrs.DrugOrder;
+import org.openmrs.Order;
 import org.openmrs.api.OrderService;
 import org.openmrs.module.fhir2.api.dao.impl.FhirMedicationRequestDaoImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +12,15 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @Primary
-public class BahmniFhirMedicationRequestDaoImpl extends FhirMedicationRequestDaoImpl implements FhirConceptCodeSystemQuery {
+public class BahmniFhirMedicationRequestDaoImpl extends FhirMedicationRequestDaoImpl implements BahmniFhirMedicationRequestDao, FhirConceptCodeSystemQuery {
 	
 	@Autowired
 	private OrderService orderService;
@@ -24,6 +30,27 @@ public class BahmniFhirMedicationRequestDaoImpl extends FhirMedicationRequestDao
 		return (DrugOrder) orderService.saveOrder(newEntry, null);
 	}
 	
+	@Override
+	public Map<Integer, Order> getDiscontinuationOrders(Collection<DrugOrder> drugOrders) {
+		List<DrugOrder> stoppedOrders = drugOrders.stream()
+		        .filter(drugOrder -> drugOrder.getDateStopped() != null && drugOrder.getOrderId() != null)
+		        .collect(Collectors.toList());
+		Map<Integer, Order> discontinuationOrdersByPreviousOrderId = new HashMap<>();
+		if (!stoppedOrders.isEmpty()) {
+			stoppedOrders.forEach(drugOrder -> discontinuationOrdersByPreviousOrderId.put(drugOrder.getOrderId(), null));
+			List<Order> discontinuationOrders = getSessionFactory().getCurrentSession()
+			        .createQuery("from Order o where o.previousOrder in (:previousOrders) and o.action = :action"
+			                + " and o.voided = false", Order.class)
+			        .setParameterList("previousOrders", stoppedOrders).setParameter("action", Order.Action.DISCONTINUE)
+			        .list();
+			for (Order discontinuationOrder : discontinuationOrders) {
+				discontinuationOrdersByPreviousOrderId.put(discontinuationOrder.getPreviousOrder().getOrderId(),
+				    discontinuationOrder);
+			}
+		}
+		return discontinuationOrdersByPreviousOrderId;
+	}
+	
 	@Override
 	protected Criterion generateSystemQuery(String system, List<String> codes, String conceptReferenceTermAlias) {
 		if (isConceptReferenceCodeEmpty(codes)) {
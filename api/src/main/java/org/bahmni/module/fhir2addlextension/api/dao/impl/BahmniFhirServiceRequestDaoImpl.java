@@ -4,6 +4,7 @@ import ca.uhn.fhir.rest.param.*;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirServiceRequestDao;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
@@ -84,6 +85,7 @@ public class BahmniFhirServiceRequestDaoImpl extends BahmniBaseFhirDao<Order> im
 	
 	@Override
 	   protected void setupSearchParams(Criteria criteria, SearchParameterMap theParams) {
+	       super.setupSearchParams(criteria, theParams);
 	       excludeDrugOrder(criteria);
 	       theParams.getParameters().forEach(entry -> {
 	           switch (entry.getKey()) {
@@ -113,6 +115,10 @@ public class BahmniFhirServiceRequestDaoImpl extends BahmniBaseFhirDao<Order> im
                     entry.getValue().forEach(basedOnRef -> handleBasedOnReference(criteria,
                         (ReferenceAndListParam) basedOnRef.getParam()));
                     break;
+                case BahmniFhirConstants.NUMBER_OF_VISITS_SEARCH_HANDLER:
+                    entry.getValue().forEach(numberOfVisits -> handleNumberOfVisits(criteria,
+                            (NumberParam) numberOfVisits.getParam()));
+                    break;
                 case FhirConstants.COMMON_SEARCH_HANDLER:
                     handleCommonSearchParameters(entry.getValue()).ifPresent(criteria::add);
                     break;
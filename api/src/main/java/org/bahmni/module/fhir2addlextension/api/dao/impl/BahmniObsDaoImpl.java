@@ -4,14 +4,27 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniObsDao;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.query.NativeQuery;
+import org.openmrs.Concept;
 import org.openmrs.Obs;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -34,4 +47,133 @@ public class BahmniObsDaoImpl implements BahmniObsDao {
         query.setParameter("members", memberIds);
         query.executeUpdate();
     }
+	
+	@Override
+	public void updateObsMembers(Map<Obs, Set<Obs>> groupMembersByGroup) {
+		if (groupMembersByGroup == null || groupMembersByGroup.isEmpty()) {
+			return;
+		}
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		session.doWork(connection -> {
+			try (PreparedStatement statement = connection
+			        .prepareStatement("UPDATE obs SET obs_group_id = ? WHERE obs_id = ?")) {
+				int batchedRows = 0;
+				for (Map.Entry<Obs, Set<Obs>> groupMembers : groupMembersByGroup.entrySet()) {
+					if (groupMembers.getValue() == null) {
+						continue;
+					}
+					for (Obs member : groupMembers.getValue()) {
+						statement.setInt(1, groupMembers.getKey().getObsId());
+						statement.setInt(2, member.getObsId());
+						statement.addBatch();
+						batchedRows++;
+					}
+				}
+				if (batchedRows > 0) {
+					statement.executeBatch();
+				}
+			}
+		});
+	}
+	
+	@Override
+	public Set<String> getExistingObsUuids(Collection<String> uuids) {
+		if (uuids == null || uuids.isEmpty()) {
+			return Collections.emptySet();
+		}
+		List<String> existingUuids = sessionFactory.getCurrentSession()
+		        .createQuery("select o.uuid from Obs o where o.uuid in (:uuids)", String.class)
+		        .setParameterList("uuids", new HashSet<>(uuids)).list();
+		return new HashSet<>(existingUuids);
+	}
+	
+	@Override
+	public void prefetchForTranslation(Collection<Obs> obs) {
+		if (obs == null || obs.isEmpty()) {
+			return;
+		}
+		Set<Integer> obsIds = obs.stream().map(Obs::getObsId).filter(Objects::nonNull).collect(Collectors.toSet());
+		if (obsIds.isEmpty()) {
+			return;
+		}
+		Session session = sessionFactory.getCurrentSession();
+		
+		List<Obs> groups = session
+		        .createQuery("select distinct o from Obs o left join fetch o.groupMembers where o.obsId in (:obsIds)",
+		            Obs.class)
+		        .setParameterList("obsIds", obsIds).list();
+		Set<Integer> allObsIds = new HashSet<>(obsIds);
+		for (Obs group : groups) {
+			for (Obs member : group.getGroupMembers(true)) {
+				allObsIds.add(member.getObsId());
+			}
+		}
+		
+		List<Obs> allObs = session
+		        .createQuery("select o from Obs o left join fetch o.concept left join fetch o.valueCoded"
+		                + " left join fetch o.person left join fetch o.encounter left join fetch o.order"
+		                + " where o.obsId in (:obsIds)", Obs.class)
+		        .setParameterList("obsIds", allObsIds).list();
+		Set<Integer> conceptIds = new HashSet<>();
+		for (Obs loadedObs : allObs) {
+			conceptIds.add(loadedObs.getConcept().getConceptId());
+			if (loadedObs.getValueCoded() != null) {
+				conceptIds.add(loadedObs.getValueCoded().getConceptId());
+			}
+		}
+		
+		// Concept is mapped polymorphically, so numeric concepts are loaded with their ConceptNumeric columns
+		session.createQuery("select distinct c from Concept c left join fetch c.names where c.conceptId in (:conceptIds)",
+		    Concept.class).setParameterList("conceptIds", conceptIds).list();
+		session.createQuery("select distinct c from Concept c left join fetch c.conceptMappings m"
+		        + " left join fetch m.conceptReferenceTerm t left join fetch t.conceptSource"
+		        + " where c.conceptId in (:conceptIds)", Concept.class).setParameterList("conceptIds", conceptIds).list();
+	}
+	
+	@Override
+	public int voidObs(Collection<Obs> obs, String voidReason) {
+		if (obs == null || obs.isEmpty()) {
+			return 0;
+		}
+		Set<Integer> obsIds = obs.stream().map(Obs::getObsId).filter(Objects::nonNull).collect(Collectors.toSet());
+		Session session = sessionFactory.getCurrentSession();
+		User voidedBy = Context.getAuthenticatedUser();
+		Date dateVoided = new Date();
+		int voidedCount = 0;
+		while (!obsIds.isEmpty()) {
+			List<Integer> memberIds = session
+			        .createQuery("select o.obsId from Obs o where o.obsGroup.obsId in (:obsIds) and o.voided = false",
+			            Integer.class)
+			        .setParameterList("obsIds", obsIds).list();
+			voidedCount += session
+			        .createQuery("update Obs o set o.voided = true, o.voidedBy = :voidedBy, o.dateVoided = :dateVoided,"
+			                + " o.voidReason = :voidReason where o.obsId in (:obsIds) and o.voided = false")
+			        .setParameter("voidedBy", voidedBy).setParameter("dateVoided", dateVoided)
+			        .setParameter("voidReason", voidReason).setParameterList("obsIds", obsIds).executeUpdate();
+			voidLoadedObs(session, obsIds, voidedBy, dateVoided, voidReason);
+			obsIds = new HashSet<>(memberIds);
+		}
+		return voidedCount;
+	}
+	
+	/**
+	 * The bulk update does not go through the session, so the obs it voided that are already loaded into the session
+	 * are voided in memory as well.
+	 */
+	private void voidLoadedObs(Session session, Set<Integer> obsIds, User voidedBy, Date dateVoided, String voidReason) {
+		SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+		EntityPersister obsPersister = sessionImplementor.getFactory().getMetamodel().entityPersister(Obs.class);
+		for (Integer obsId : obsIds) {
+			Object loadedObs = sessionImplementor.getPersistenceContext()
+			        .getEntity(sessionImplementor.generateEntityKey(obsId, obsPersister));
+			if (loadedObs instanceof Obs && !((Obs) loadedObs).getVoided()) {
+				Obs obs = (Obs) loadedObs;
+				obs.setVoided(true);
+				obs.setVoidedBy(voidedBy);
+				obs.setDateVoided(dateVoided);
+				obs.setVoidReason(voidReason);
+			}
+		}
+	}
 }
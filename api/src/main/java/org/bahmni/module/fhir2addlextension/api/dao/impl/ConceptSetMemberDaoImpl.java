@@ -0,0 +1,50 @@
+package org.bahmni.module.fhir2addlextension.api.dao.impl;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.bahmni.module.fhir2addlextension.api.dao.ConceptSetMemberDao;
+import org.hibernate.SessionFactory;
+import org.openmrs.Concept;
+import org.openmrs.ConceptSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+public class ConceptSetMemberDaoImpl implements ConceptSetMemberDao {
+	
+	@Getter(AccessLevel.PUBLIC)
+	@Setter(value = AccessLevel.PROTECTED, onMethod = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public Map<String, List<Concept>> getSetMembers(Collection<Concept> conceptSets) {
+		if (conceptSets == null || conceptSets.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Set<Integer> conceptSetIds = conceptSets.stream().map(Concept::getConceptId).collect(Collectors.toSet());
+		List<ConceptSet> setMemberships = sessionFactory.getCurrentSession()
+		        .createQuery(
+		            "select distinct cs from ConceptSet cs join fetch cs.concept member"
+		                    + " left join fetch member.conceptClass left join fetch member.names"
+		                    + " where cs.conceptSet.conceptId in (:conceptSetIds) order by cs.sortWeight",
+		            ConceptSet.class).setParameterList("conceptSetIds", conceptSetIds).list();
+		
+		Map<String, List<Concept>> setMembers = new HashMap<>();
+		for (ConceptSet setMembership : setMemberships) {
+			setMembers.computeIfAbsent(setMembership.getConceptSet().getUuid(), uuid -> new ArrayList<>()).add(
+			    setMembership.getConcept());
+		}
+		return setMembers;
+	}
+}
@@ -9,7 +9,6 @@ import org.hibernate.Criteria;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir2.FhirConstants;
-import org.openmrs.module.fhir2.api.dao.impl.BaseFhirDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +16,7 @@ import javax.annotation.Nonnull;
 import java.util.Date;
 
 @Component
-public class DocumentReferenceDaoImpl extends BaseFhirDao<FhirDocumentReference> implements DocumentReferenceDao {
+public class DocumentReferenceDaoImpl extends BahmniBaseFhirDao<FhirDocumentReference> implements DocumentReferenceDao {
 	
 	@Override
 	public void voidDocumentReference(@Nonnull FhirDocumentReference documentReference, @Nonnull String voidReason) {
@@ -0,0 +1,371 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of drug names and drug concept names for Medication name searches. A drug matches a search phrase
+ * when every word of the phrase occurs in its name, or every word occurs in one of its concept names, which is how
+ * ConceptService#getDrugs searches with keywords and concept names. Drugs matching by name come first, then drugs
+ * matching only by concept name, each ordered by drug name.
+ * <p>
+ * Candidates are looked up through the trigrams of each word and then checked against the names. The ordered matches
+ * of recent phrases are kept, so the count and the pages of one search are answered from a single lookup. Searches
+ * share a read lock, so they only wait for changes to the index and not for each other. The index is built when the
+ * module starts and kept up to date as changes to drugs and concepts are committed; until it is built, and for
+ * phrases without a word long enough to look up by trigram, {@link #search(String)} returns null and callers search
+ * the database instead.
+ */
+@Component
+@Slf4j
+public class DrugNameIndex {
+
+	private static final int GRAM_LENGTH = 3;
+
+	private static final int RECENT_SEARCHES = 100;
+
+	private final Map<Integer, IndexedDrug> drugsById = new HashMap<>();
+
+	private final Map<Integer, Set<Integer>> drugIdsByConceptId = new HashMap<>();
+
+	private final Map<String, Set<Integer>> drugIdsByGram = new HashMap<>();
+
+	private final Map<String, List<Integer>> recentSearches = Collections.synchronizedMap(
+	    new LinkedHashMap<String, List<Integer>>(16, 0.75f, true) {
+
+		    @Override
+		    protected boolean removeEldestEntry(Map.Entry<String, List<Integer>> eldest) {
+			    return size() > RECENT_SEARCHES;
+		    }
+	    });
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private volatile boolean ready = false;
+
+	private final List<Runnable> pendingChanges = new ArrayList<>();
+
+	private int rebuildsInProgress = 0;
+
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private BahmniDrugDao drugDao;
+
+	@Transactional(readOnly = true)
+	public void rebuild() {
+		synchronized (pendingChanges) {
+			rebuildsInProgress++;
+		}
+		List<Drug> drugs = null;
+		try {
+			drugs = drugDao.getAllDrugsWithConceptNames();
+		}
+		finally {
+			lock.writeLock().lock();
+			try {
+				if (drugs != null) {
+					drugsById.clear();
+					drugIdsByConceptId.clear();
+					drugIdsByGram.clear();
+					drugs.forEach(this::add);
+					ready = true;
+				}
+				applyPendingChanges();
+				recentSearches.clear();
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+		log.info("Indexed names of {} drugs", drugs.size());
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @param phrase search phrase
+	 * @return ids of the matching drugs in rank order, or null if the index has not been built yet or no word of the
+	 *         phrase is long enough to look up candidates by trigram
+	 */
+	public List<Integer> search(String phrase) {
+		if (!ready) {
+			return null;
+		}
+		List<String> words = toWords(phrase);
+		if (words.stream().noneMatch(word -> word.length() >= GRAM_LENGTH)) {
+			return null;
+		}
+		String key = String.join(" ", words);
+		lock.readLock().lock();
+		try {
+			List<Integer> matches = recentSearches.get(key);
+			if (matches == null) {
+				matches = Collections.unmodifiableList(findMatches(words));
+				recentSearches.put(key, matches);
+			}
+			return matches;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds, re-indexes or removes the drug, depending on whether it is retired
+	 */
+	public void update(Drug drug) {
+		if (drug == null || drug.getDrugId() == null) {
+			return;
+		}
+		Integer drugId = drug.getDrugId();
+		IndexedDrug indexedDrug = Boolean.TRUE.equals(drug.getRetired()) ? null : toIndexedDrug(drug);
+		change(() -> {
+			remove(drugId);
+			if (indexedDrug != null) {
+				add(indexedDrug);
+			}
+		});
+	}
+
+	public void remove(Drug drug) {
+		if (drug == null || drug.getDrugId() == null) {
+			return;
+		}
+		Integer drugId = drug.getDrugId();
+		change(() -> remove(drugId));
+	}
+
+	/**
+	 * Re-indexes the drugs of the concept with its current names
+	 */
+	public void updateConcept(Concept concept) {
+		if (concept == null || concept.getConceptId() == null) {
+			return;
+		}
+		Integer conceptId = concept.getConceptId();
+		List<String> conceptNames = getConceptNames(concept);
+		change(() -> {
+			Set<Integer> drugIds = drugIdsByConceptId.get(conceptId);
+			if (drugIds == null) {
+				return;
+			}
+			for (Integer drugId : new ArrayList<>(drugIds)) {
+				IndexedDrug indexedDrug = drugsById.get(drugId);
+				remove(drugId);
+				add(new IndexedDrug(drugId, indexedDrug.conceptId, indexedDrug.name, conceptNames));
+			}
+		});
+	}
+
+	/**
+	 * Applies a change to the index. A change arriving while the index is rebuilt is also kept until the rebuilt index
+	 * has replaced the current one, and applied to it again, as the drugs it was rebuilt from may have been loaded
+	 * before the change was committed. Changes arriving before the index is first built are dropped, as building it
+	 * loads them.
+	 */
+	private void change(Runnable change) {
+		synchronized (pendingChanges) {
+			if (rebuildsInProgress > 0) {
+				pendingChanges.add(change);
+			}
+		}
+		lock.writeLock().lock();
+		try {
+			if (ready) {
+				change.run();
+				recentSearches.clear();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies the changes that arrived during a rebuild to the index it built. They are kept until no other rebuild is
+	 * in progress. Callers hold the write lock.
+	 */
+	private void applyPendingChanges() {
+		synchronized (pendingChanges) {
+			if (ready) {
+				pendingChanges.forEach(Runnable::run);
+			}
+			if (--rebuildsInProgress == 0) {
+				pendingChanges.clear();
+			}
+		}
+	}
+
+	/**
+	 * Looks up the candidates by the trigrams of the words that have any; callers make sure at least one word does
+	 */
+	private List<Integer> findMatches(List<String> words) {
+		Set<Integer> candidates = null;
+		for (String word : words) {
+			if (word.length() < GRAM_LENGTH) {
+				continue;
+			}
+			for (String gram : toGrams(word)) {
+				Set<Integer> gramDrugIds = drugIdsByGram.getOrDefault(gram, Collections.emptySet());
+				if (candidates == null) {
+					candidates = new HashSet<>(gramDrugIds);
+				} else {
+					candidates.retainAll(gramDrugIds);
+				}
+			}
+		}
+
+		List<IndexedDrug> nameMatches = new ArrayList<>();
+		List<IndexedDrug> conceptNameMatches = new ArrayList<>();
+		for (Integer drugId : candidates) {
+			IndexedDrug indexedDrug = drugsById.get(drugId);
+			if (containsAll(indexedDrug.name, words)) {
+				nameMatches.add(indexedDrug);
+			} else if (indexedDrug.conceptNames.stream().anyMatch(conceptName -> containsAll(conceptName, words))) {
+				conceptNameMatches.add(indexedDrug);
+			}
+		}
+		Comparator<IndexedDrug> byName = Comparator.comparing((IndexedDrug indexedDrug) -> indexedDrug.name)
+		        .thenComparing(indexedDrug -> indexedDrug.drugId);
+		nameMatches.sort(byName);
+		conceptNameMatches.sort(byName);
+
+		List<Integer> matches = new ArrayList<>(nameMatches.size() + conceptNameMatches.size());
+		nameMatches.forEach(indexedDrug -> matches.add(indexedDrug.drugId));
+		conceptNameMatches.forEach(indexedDrug -> matches.add(indexedDrug.drugId));
+		return matches;
+	}
+
+	private void add(Drug drug) {
+		add(toIndexedDrug(drug));
+	}
+
+	private static IndexedDrug toIndexedDrug(Drug drug) {
+		Concept concept = drug.getConcept();
+		return new IndexedDrug(drug.getDrugId(), concept != null ? concept.getConceptId() : null, normalize(drug.getName()),
+		        concept != null ? getConceptNames(concept) : Collections.emptyList());
+	}
+
+	private void add(IndexedDrug indexedDrug) {
+		drugsById.put(indexedDrug.drugId, indexedDrug);
+		if (indexedDrug.conceptId != null) {
+			drugIdsByConceptId.computeIfAbsent(indexedDrug.conceptId, conceptId -> new HashSet<>()).add(indexedDrug.drugId);
+		}
+		for (String gram : indexedDrug.getGrams()) {
+			drugIdsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(indexedDrug.drugId);
+		}
+	}
+
+	private void remove(Integer drugId) {
+		IndexedDrug indexedDrug = drugsById.remove(drugId);
+		if (indexedDrug == null) {
+			return;
+		}
+		if (indexedDrug.conceptId != null) {
+			Set<Integer> conceptDrugIds = drugIdsByConceptId.get(indexedDrug.conceptId);
+			if (conceptDrugIds != null) {
+				conceptDrugIds.remove(drugId);
+				if (conceptDrugIds.isEmpty()) {
+					drugIdsByConceptId.remove(indexedDrug.conceptId);
+				}
+			}
+		}
+		for (String gram : indexedDrug.getGrams()) {
+			Set<Integer> gramDrugIds = drugIdsByGram.get(gram);
+			if (gramDrugIds != null) {
+				gramDrugIds.remove(drugId);
+				if (gramDrugIds.isEmpty()) {
+					drugIdsByGram.remove(gram);
+				}
+			}
+		}
+	}
+
+	private static List<String> getConceptNames(Concept concept) {
+		List<String> conceptNames = new ArrayList<>();
+		for (ConceptName conceptName : concept.getNames(false)) {
+			String name = normalize(conceptName.getName());
+			if (!name.isEmpty()) {
+				conceptNames.add(name);
+			}
+		}
+		return conceptNames;
+	}
+
+	private static boolean containsAll(String text, List<String> words) {
+		for (String word : words) {
+			if (!text.contains(word)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<String> toWords(String phrase) {
+		List<String> words = new ArrayList<>();
+		for (String word : normalize(phrase).split("\\s+")) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	private static Set<String> toGrams(String text) {
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+			grams.add(text.substring(i, i + GRAM_LENGTH));
+		}
+		return grams;
+	}
+
+	private static String normalize(String text) {
+		return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static class IndexedDrug {
+
+		private final Integer drugId;
+
+		private final Integer conceptId;
+
+		private final String name;
+
+		private final List<String> conceptNames;
+
+		private IndexedDrug(Integer drugId, Integer conceptId, String name, List<String> conceptNames) {
+			this.drugId = drugId;
+			this.conceptId = conceptId;
+			this.name = name;
+			this.conceptNames = conceptNames;
+		}
+
+		private Set<String> getGrams() {
+			Set<String> grams = toGrams(name);
+			conceptNames.forEach(conceptName -> grams.addAll(toGrams(conceptName)));
+			return grams;
+		}
+	}
+}
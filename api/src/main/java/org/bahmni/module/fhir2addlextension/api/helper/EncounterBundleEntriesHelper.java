@@ -1,6 +1,8 @@
 package org.bahmni.module.fhir2addlextension.api.helper;
 
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.bahmni.module.fhir2addlextension.api.utils.BundleResourceIndex;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Immunization;
 import org.hl7.fhir.r4.model.Observation;
@@ -10,93 +12,83 @@ import org.hl7.fhir.r4.model.ResourceType;
 import org.openmrs.module.fhir2.FhirConstants;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class EncounterBundleEntriesHelper {
 	
+	/**
+	 * Orders the entries so that every entry comes after the entries it references, using an in-degree queue over
+	 * the dependency graph. Entries released together keep their order in the bundle.
+	 *
+	 * @throws InvalidRequestException if the entries reference each other in a cycle
+	 */
 	public static List<Bundle.BundleEntryComponent> orderEntriesByReference(List<Bundle.BundleEntryComponent> entries) {
-        List<Bundle.BundleEntryComponent> orderedEntries = new ArrayList<>();
-
-        // If there are no entries or only one entry, return the entries as is
-        if (entries == null || entries.size() <= 1) {
-            return entries != null ? new ArrayList<>(entries) : new ArrayList<>();
-        }
-
-        // Create a map of resource ID to bundle entry for quick lookup
-        Map<String, Bundle.BundleEntryComponent> resourceUrlToEntry = new HashMap<>();
-
-        // Create a map of bundle entry to the set of entries it references
-        Map<Bundle.BundleEntryComponent, Set<Bundle.BundleEntryComponent>> entryDependencies = new HashMap<>();
-
-        // Initialize the maps
-        for (Bundle.BundleEntryComponent entry : entries) {
-            if (entry.hasResource() && entry.hasFullUrl()) {
-                resourceUrlToEntry.put(entry.getFullUrl(), entry);
-                entryDependencies.put(entry, new HashSet<>());
-            }
-        }
-
-        // Build the dependency graph
-        for (Bundle.BundleEntryComponent entry : entries) {
-            if (entry.hasResource()) {
-                Resource resource = entry.getResource();
-                Set<Reference> references = extractReferences(resource);
-
-                for (Reference reference : references) {
-                    if (reference.hasReference()) {
-                        String referenceValue = reference.getReference();
-
-                        // Check if this reference points to another resource in the bundle
-                        Bundle.BundleEntryComponent referencedEntry = resourceUrlToEntry.get(referenceValue);
-
-                        if (referencedEntry != null && !referencedEntry.equals(entry)) {
-                            // Add the dependency
-                            entryDependencies.get(entry).add(referencedEntry);
-                        }
-                    }
-                }
-            }
-        }
-
-        // Set of entries that have been processed
-        Set<Bundle.BundleEntryComponent> processedEntries = new HashSet<>();
-
-        // Process entries in topological order
-        while (processedEntries.size() < entries.size()) {
-            boolean progress = false;
-
-            for (Bundle.BundleEntryComponent entry : entries) {
-                // Skip entries that have already been processed
-                if (processedEntries.contains(entry)) {
-                    continue;
-                }
-
-                // Check if all dependencies have been processed
-                Set<Bundle.BundleEntryComponent> dependencies = entryDependencies.get(entry);
-                if (dependencies == null || dependencies.isEmpty() || processedEntries.containsAll(dependencies)) {
-                    // All dependencies have been processed, so we can process this entry
-                    orderedEntries.add(entry);
-                    processedEntries.add(entry);
-                    progress = true;
-                }
-            }
-
-            // If we didn't make any progress in this iteration, there might be a circular dependency
-            if (!progress) {
-                // Add remaining entries in their original order to avoid an infinite loop
-                for (Bundle.BundleEntryComponent entry : entries) {
-                    if (!processedEntries.contains(entry)) {
-                        orderedEntries.add(entry);
-                        processedEntries.add(entry);
-                    }
-                }
-            }
-        }
-
-        return orderedEntries;
-    }
+		// If there are no entries or only one entry, return the entries as is
+		if (entries == null || entries.size() <= 1) {
+			return entries != null ? new ArrayList<>(entries) : new ArrayList<>();
+		}
+		
+		Map<Bundle.BundleEntryComponent, Integer> pendingDependencyCounts = new LinkedHashMap<>();
+		Map<Bundle.BundleEntryComponent, List<Bundle.BundleEntryComponent>> dependentEntries = new HashMap<>();
+		indexDependencyGraph(entries, pendingDependencyCounts, dependentEntries);
+		
+		Deque<Bundle.BundleEntryComponent> readyEntries = new ArrayDeque<>();
+		pendingDependencyCounts.forEach((entry, pendingCount) -> {
+			if (pendingCount == 0) {
+				readyEntries.add(entry);
+			}
+		});
+		
+		List<Bundle.BundleEntryComponent> orderedEntries = new ArrayList<>(pendingDependencyCounts.size());
+		while (!readyEntries.isEmpty()) {
+			Bundle.BundleEntryComponent entry = readyEntries.poll();
+			orderedEntries.add(entry);
+			for (Bundle.BundleEntryComponent dependent : dependentEntries.getOrDefault(entry, Collections.emptyList())) {
+				if (pendingDependencyCounts.merge(dependent, -1, Integer::sum) == 0) {
+					readyEntries.add(dependent);
+				}
+			}
+		}
+		
+		if (orderedEntries.size() < pendingDependencyCounts.size()) {
+			throw circularReferenceException(pendingDependencyCounts, dependentEntries);
+		}
+		return orderedEntries;
+	}
 	
 	public static Bundle.BundleEntryComponent resolveReferences(Bundle.BundleEntryComponent entry,
 	        Map<String, Bundle.BundleEntryComponent> processedEntries) {
+		return resolveReferences(entry, (Function<String, String>) placeHolderReference -> {
+			Bundle.BundleEntryComponent processedEntry = processedEntries.get(placeHolderReference);
+			return processedEntry != null ? processedEntry.getResource().getId() : null;
+		});
+	}
+	
+	/**
+	 * Same as {@link #resolveReferences(Bundle.BundleEntryComponent, Map)}, for callers that only keep the ids of the
+	 * resources created for the processed entries, keyed by entry fullUrl.
+	 */
+	public static Bundle.BundleEntryComponent resolveReferencesToIds(Bundle.BundleEntryComponent entry,
+	        Map<String, String> processedResourceIds) {
+		return resolveReferences(entry, (Function<String, String>) processedResourceIds::get);
+	}
+	
+	/**
+	 * @return references of the entry's resource that have to point to other entries of the bundle
+	 */
+	public static Set<String> getEntryReferences(Bundle.BundleEntryComponent entry) {
+		Set<String> entryReferences = new HashSet<>();
+		for (Reference reference : extractReferences(entry.getResource())) {
+			if (reference.hasReference()) {
+				entryReferences.add(reference.getReference());
+			}
+		}
+		return entryReferences;
+	}
+	
+	private static Bundle.BundleEntryComponent resolveReferences(Bundle.BundleEntryComponent entry,
+	        Function<String, String> processedEntries) {
 		// DELETE entries are identified solely by resource ID — no placeholder references to resolve.
 		if (entry.getRequest().getMethod() == Bundle.HTTPVerb.DELETE) {
 			return entry;
@@ -207,6 +199,81 @@ public class EncounterBundleEntriesHelper {
 		result.add(node); // Add to final list
 	}
 	
+	/**
+	 * Fills in, for every entry, the number of bundle entries it references and the entries that reference it. The
+	 * pending counts are filled in bundle order.
+	 */
+	private static void indexDependencyGraph(List<Bundle.BundleEntryComponent> entries,
+	        Map<Bundle.BundleEntryComponent, Integer> pendingDependencyCounts,
+	        Map<Bundle.BundleEntryComponent, List<Bundle.BundleEntryComponent>> dependentEntries) {
+		Map<Bundle.BundleEntryComponent, Set<Bundle.BundleEntryComponent>> entryDependencies = buildEntryDependencies(entries);
+		for (Bundle.BundleEntryComponent entry : entries) {
+			if (pendingDependencyCounts.containsKey(entry)) {
+				continue;
+			}
+			Set<Bundle.BundleEntryComponent> dependencies = entryDependencies.getOrDefault(entry, Collections.emptySet());
+			pendingDependencyCounts.put(entry, dependencies.size());
+			for (Bundle.BundleEntryComponent dependency : dependencies) {
+				dependentEntries.computeIfAbsent(dependency, key -> new ArrayList<>()).add(entry);
+			}
+		}
+	}
+	
+	/**
+	 * Entries left with pending dependencies either sit on a cycle or merely depend on one. The latter are peeled
+	 * off (in reverse, starting from entries nobody else is waiting on) so that only the entries forming the cycle
+	 * are reported.
+	 */
+	private static InvalidRequestException circularReferenceException(
+	        Map<Bundle.BundleEntryComponent, Integer> pendingDependencyCounts,
+	        Map<Bundle.BundleEntryComponent, List<Bundle.BundleEntryComponent>> dependentEntries) {
+		Set<Bundle.BundleEntryComponent> unresolvedEntries = new LinkedHashSet<>();
+		pendingDependencyCounts.forEach((entry, pendingCount) -> {
+			if (pendingCount > 0) {
+				unresolvedEntries.add(entry);
+			}
+		});
+		boolean peeled = true;
+		while (peeled) {
+			peeled = unresolvedEntries.removeIf(entry -> dependentEntries.getOrDefault(entry, Collections.emptyList())
+			        .stream().noneMatch(unresolvedEntries::contains));
+		}
+		String fullUrls = unresolvedEntries.stream().map(Bundle.BundleEntryComponent::getFullUrl)
+		        .collect(Collectors.joining(", "));
+		return new InvalidRequestException(String.format("Circular reference detected between bundle entries [%s]",
+		    fullUrls));
+	}
+	
+	private static Map<Bundle.BundleEntryComponent, Set<Bundle.BundleEntryComponent>> buildEntryDependencies(
+	        List<Bundle.BundleEntryComponent> entries) {
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(entries);
+		Map<Bundle.BundleEntryComponent, Set<Bundle.BundleEntryComponent>> entryDependencies = new HashMap<>();
+		
+		for (Bundle.BundleEntryComponent entry : entries) {
+			if (entry.hasResource() && entry.hasFullUrl()) {
+				entryDependencies.put(entry, new HashSet<>());
+			}
+		}
+		
+		// Build the dependency graph
+		for (Bundle.BundleEntryComponent entry : entries) {
+			if (!entryDependencies.containsKey(entry)) {
+				continue;
+			}
+			for (Reference reference : extractReferences(entry.getResource())) {
+				if (reference.hasReference()) {
+					// Check if this reference points to another resource in the bundle
+					Bundle.BundleEntryComponent referencedEntry = bundleIndex.findEntryByFullUrl(reference.getReference())
+					        .orElse(null);
+					if (referencedEntry != null && !referencedEntry.equals(entry)) {
+						entryDependencies.get(entry).add(referencedEntry);
+					}
+				}
+			}
+		}
+		return entryDependencies;
+	}
+	
 	private static Set<Reference> extractReferences(Resource resource) {
         Set<Reference> references = new HashSet<>();
 
@@ -272,11 +339,11 @@ public class EncounterBundleEntriesHelper {
 	}
 	
 	private static String getIdForPlaceHolderReference(String placeHolderReference,
-	        Map<String, Bundle.BundleEntryComponent> processedEntries) {
-		Bundle.BundleEntryComponent processedEntry = processedEntries.get(placeHolderReference);
-		if (processedEntry == null) {
+	        Function<String, String> processedEntries) {
+		String processedResourceId = processedEntries.apply(placeHolderReference);
+		if (processedResourceId == null) {
 			throw new InternalErrorException("Could not find processed entry for " + placeHolderReference);
 		}
-		return processedEntry.getResource().getId();
+		return processedResourceId;
 	}
 }
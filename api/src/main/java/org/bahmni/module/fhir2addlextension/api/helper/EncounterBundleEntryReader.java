@@ -0,0 +1,126 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. Bahmni amd OpenMRS are also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright 2025 (C) Thoughtworks Inc.
+ */
+
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hl7.fhir.r4.model.Bundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the entries of a JSON Bundle one at a time from a stream. Only the entry being read is held as a JSON tree
+ * and parsed into HAPI model objects, so memory use does not grow with the size of the bundle. Top level elements
+ * other than resourceType, type and entry are skipped.
+ */
+public class EncounterBundleEntryReader implements Closeable {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final IParser fhirParser;
+
+	private final JsonParser jsonParser;
+
+	private String bundleType;
+
+	private boolean readingEntries = false;
+
+	public EncounterBundleEntryReader(InputStream bundleStream, IParser fhirParser) throws IOException {
+		this.fhirParser = fhirParser;
+		this.jsonParser = objectMapper.getFactory().createParser(bundleStream);
+		if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+			throw new InvalidRequestException("Bundle must be a JSON object");
+		}
+	}
+
+	/**
+	 * @return the bundle type read so far, or null if the type element has not been read yet
+	 */
+	public Bundle.BundleType getBundleType() {
+		if (bundleType == null) {
+			return null;
+		}
+		try {
+			return Bundle.BundleType.fromCode(bundleType);
+		}
+		catch (Exception e) {
+			throw new InvalidRequestException(String.format("Invalid bundle type [%s]", bundleType));
+		}
+	}
+
+	/**
+	 * @return the next entry of the bundle, or null once all entries have been read
+	 */
+	public Bundle.BundleEntryComponent nextEntry() throws IOException {
+		while (true) {
+			if (readingEntries) {
+				JsonToken token = jsonParser.nextToken();
+				if (token == JsonToken.START_OBJECT) {
+					return parseEntry(objectMapper.readTree(jsonParser));
+				}
+				if (token != JsonToken.END_ARRAY) {
+					throw new InvalidRequestException("Bundle entries must be JSON objects");
+				}
+				readingEntries = false;
+			}
+
+			JsonToken token = jsonParser.nextToken();
+			if (token == null || token == JsonToken.END_OBJECT) {
+				return null;
+			}
+			String fieldName = jsonParser.getCurrentName();
+			JsonToken valueToken = jsonParser.nextToken();
+			switch (fieldName) {
+				case "resourceType":
+					if (!"Bundle".equals(jsonParser.getText())) {
+						throw new InvalidRequestException("Resource type must be Bundle");
+					}
+					break;
+				case "type":
+					bundleType = jsonParser.getText();
+					break;
+				case "entry":
+					if (valueToken != JsonToken.START_ARRAY) {
+						throw new InvalidRequestException("Bundle entry element must be an array");
+					}
+					readingEntries = true;
+					break;
+				default:
+					jsonParser.skipChildren();
+					break;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		jsonParser.close();
+	}
+
+	/**
+	 * Wraps the single entry into a bundle so that HAPI resolves the entry resource, its id and request element
+	 * exactly as it does when parsing the whole bundle.
+	 */
+	private Bundle.BundleEntryComponent parseEntry(JsonNode entryNode) {
+		ObjectNode bundleNode = objectMapper.createObjectNode();
+		bundleNode.put("resourceType", "Bundle");
+		bundleNode.put("type", bundleType != null ? bundleType : Bundle.BundleType.TRANSACTION.toCode());
+		bundleNode.putArray("entry").add(entryNode);
+		Bundle bundle = fhirParser.parseResource(Bundle.class, bundleNode.toString());
+		return bundle.getEntryFirstRep();
+	}
+}
@@ -0,0 +1,77 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uuids of the patients with a photo in the person image directory, where each photo is saved as the patient uuid
+ * followed by a fixed suffix such as ".jpeg". The uuids are read from a listing of the directory, so answering whether
+ * a patient has a photo does no file system access. Photos saved or deleted through the module are applied directly;
+ * photos written by other means are picked up by listing the directory again once its modification time has changed,
+ * which is checked at most once per check interval.
+ */
+@Slf4j
+public class PatientPhotoIndex {
+	
+	private final File directory;
+	
+	private final String fileSuffix;
+	
+	private final long checkIntervalMillis;
+	
+	private volatile Set<String> patientUuids = ConcurrentHashMap.newKeySet();
+	
+	private volatile long nextCheckMillis = 0;
+	
+	private long directoryLastModified = -1;
+	
+	public PatientPhotoIndex(File directory, String fileSuffix, long checkIntervalMillis) {
+		this.directory = directory;
+		this.fileSuffix = fileSuffix;
+		this.checkIntervalMillis = checkIntervalMillis;
+	}
+	
+	public boolean hasPhoto(String patientUuid) {
+		if (System.currentTimeMillis() >= nextCheckMillis) {
+			scanIfChanged();
+		}
+		return patientUuids.contains(patientUuid);
+	}
+	
+	public void add(String patientUuid) {
+		patientUuids.add(patientUuid);
+	}
+	
+	public void remove(String patientUuid) {
+		patientUuids.remove(patientUuid);
+	}
+	
+	private synchronized void scanIfChanged() {
+		long now = System.currentTimeMillis();
+		if (now < nextCheckMillis) {
+			return;
+		}
+		nextCheckMillis = now + checkIntervalMillis;
+		long lastModified = directory.lastModified();
+		if (lastModified == directoryLastModified) {
+			return;
+		}
+		String[] fileNames = directory.list();
+		if (fileNames == null) {
+			log.warn("Could not list patient photo directory {}", directory.getAbsolutePath());
+			return;
+		}
+		Set<String> scannedUuids = ConcurrentHashMap.newKeySet();
+		for (String fileName : fileNames) {
+			if (fileName.endsWith(fileSuffix) && fileName.length() > fileSuffix.length()) {
+				scannedUuids.add(fileName.substring(0, fileName.length() - fileSuffix.length()));
+			}
+		}
+		patientUuids = scannedUuids;
+		directoryLastModified = lastModified;
+		log.debug("Indexed {} patient photos in {}", scannedUuids.size(), directory.getAbsolutePath());
+	}
+}
@@ -0,0 +1,71 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches hierarchical ValueSet expansions by concept uuid and locale. Size and expiry are configured in
+ * apiCacheConfig.properties. The cache is cleared whenever a concept is saved, retired or purged, as a change to any
+ * concept may change the expansion of the sets it belongs to. Expansions are copied in and out of the cache, so
+ * callers are free to modify what they get.
+ */
+@Component
+@Slf4j
+public class ValueSetExpansionCache {
+
+	public static final String CACHE_NAME = "fhir2addlextensionValueSetExpansion";
+
+	private final CacheManager cacheManager;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	@Autowired
+	public ValueSetExpansionCache(@Qualifier("apiCacheManager") CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	public ValueSet.ValueSetExpansionComponent get(String conceptUuid, Locale locale,
+	        Supplier<ValueSet.ValueSetExpansionComponent> expansionSupplier) {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		if (cache == null) {
+			return expansionSupplier.get();
+		}
+		String key = conceptUuid + "|" + locale;
+		ValueSet.ValueSetExpansionComponent cachedExpansion = cache.get(key, ValueSet.ValueSetExpansionComponent.class);
+		if (cachedExpansion != null) {
+			hitCount.incrementAndGet();
+			return cachedExpansion.copy();
+		}
+		missCount.incrementAndGet();
+		ValueSet.ValueSetExpansionComponent expansion = expansionSupplier.get();
+		cache.put(key, expansion.copy());
+		return expansion;
+	}
+
+	public void clear() {
+		Cache cache = cacheManager.getCache(CACHE_NAME);
+		if (cache != null) {
+			cache.clear();
+			log.debug("Cleared ValueSet expansion cache");
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+}
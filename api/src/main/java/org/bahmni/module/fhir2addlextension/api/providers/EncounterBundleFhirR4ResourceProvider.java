@@ -11,8 +11,10 @@ package org.bahmni.module.fhir2addlextension.api.providers;
 
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import org.bahmni.module.fhir2addlextension.api.domain.EncounterBundle;
@@ -27,6 +29,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 @Component("encounterBundleFhirR4ResourceProvider")
 @R4Provider
@@ -51,6 +56,20 @@ public class EncounterBundleFhirR4ResourceProvider implements IResourceProvider
 		return FhirProviderUtils.buildCreate(responseBundle);
 	}
 
+	/**
+	 * Streaming alternative to create for very large bundles, see {@link EncounterBundleService#ingest}. The request
+	 * body is read and the transaction-response bundle is written incrementally instead of being parsed and built in
+	 * memory. The response is only written once the bundle has been committed, so errors before that are reported as
+	 * regular error responses.
+	 */
+	@Operation(name = "$ingest", manualRequest = true, manualResponse = true)
+	public void ingestEncounterBundle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setContentType(Constants.CT_FHIR_JSON_NEW);
+		response.setCharacterEncoding(Constants.CHARSET_NAME_UTF8);
+		response.setStatus(HttpServletResponse.SC_OK);
+		encounterBundleService.ingest(request.getInputStream(), response.getOutputStream());
+	}
+
 	@Read
 	public EncounterBundle getEncounterBundleByUuid(@IdParam @Nonnull IdType encounterUuid) {
 		return null;
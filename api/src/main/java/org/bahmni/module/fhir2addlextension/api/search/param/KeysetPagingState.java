@@ -0,0 +1,22 @@
+package org.bahmni.module.fhir2addlextension.api.search.param;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the id of the last result of each page served for a search, keyed by the index of the result that follows
+ * it. The DAO keeps one for every search parameter map still in use, which lives as long as the search that the
+ * bundle's next links point to, so a following page can seek past that id instead of skipping an offset.
+ */
+public class KeysetPagingState {
+
+	private final Map<Integer, Integer> lastIdsByNextIndex = new HashMap<>();
+
+	public synchronized Integer getLastIdBefore(int index) {
+		return lastIdsByNextIndex.get(index);
+	}
+
+	public synchronized void recordLastId(int nextIndex, Integer lastId) {
+		lastIdsByNextIndex.put(nextIndex, lastId);
+	}
+}
@@ -1,10 +1,66 @@
 package org.bahmni.module.fhir2addlextension.api.service;
 
 import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.openmrs.Obs;
 import org.openmrs.module.fhir2.api.FhirObservationService;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 public interface BahmniFhirObservationService extends FhirObservationService {
 	
 	Bundle fetchAllByEncounter(ReferenceAndListParam encounterReference);
+	
+	/**
+	 * Creates the observation like {@link #create(Observation)}, except that the group members of the created obs
+	 * are added to pendingGroupMembers instead of being updated right away. Used when creating a number of
+	 * observations together, so that the session is not flushed for every one of them.
+	 * 
+	 * @see #updateGroupMembers(Map)
+	 */
+	Observation createWithPendingGroupMembers(Observation newResource, Map<Obs, Set<Obs>> pendingGroupMembers);
+	
+	/**
+	 * Updates the group members collected by {@link #createWithPendingGroupMembers(Observation, Map)}
+	 */
+	void updateGroupMembers(Map<Obs, Set<Obs>> pendingGroupMembers);
+	
+	/**
+	 * @return the given observation ids that belong to existing observations, voided or not, without loading them
+	 */
+	Set<String> getExistingObservationIds(Collection<String> observationIds);
+	
+	/**
+	 * Same as {@link #getExistingObservationIds(Collection)} for any observation service. Observation services that are
+	 * not a BahmniFhirObservationService get the observations one by one.
+	 */
+	static Set<String> findExistingObservationIds(FhirObservationService observationService,
+	        Collection<String> observationIds) {
+		if (observationService instanceof BahmniFhirObservationService) {
+			return ((BahmniFhirObservationService) observationService).getExistingObservationIds(observationIds);
+		}
+		Set<String> existingObservationIds = new HashSet<>();
+		for (String observationId : observationIds) {
+			try {
+				Observation existing = observationService.get(observationId);
+				if (existing != null) {
+					existingObservationIds.add(existing.getId());
+				}
+			}
+			catch (ResourceNotFoundException e) {
+				// not persisted yet, will be created
+			}
+		}
+		return existingObservationIds;
+	}
+	
+	/**
+	 * Voids the given obs and their group members in bulk, as {@link #delete(String)} does for each of them
+	 */
+	void voidObservations(Collection<Obs> obs);
 }
@@ -2,6 +2,7 @@ package org.bahmni.module.fhir2addlextension.api.service;
 
 import java.io.File;
 
+import org.bahmni.module.fhir2addlextension.api.helper.PatientPhotoIndex;
 import org.openmrs.api.context.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,9 +13,25 @@ public class BahmniPatientPhotoService {
 
 	private static final Logger log = LoggerFactory.getLogger(BahmniPatientPhotoService.class);
 
+	private static final long PHOTO_DIRECTORY_CHECK_INTERVAL_MILLIS = 30000;
+
+	private volatile PatientPhotoIndex photoIndex;
+
+	/**
+	 * Answers from the photo index once the image directory is known, so patient search pages do not touch the file
+	 * system per patient. The directory is learnt from the first photo location that follows the uuid naming.
+	 */
 	public boolean hasPhoto(org.openmrs.Patient patient) {
 		try {
+			PatientPhotoIndex index = photoIndex;
+			if (index != null && patient.getUuid() != null) {
+				return index.hasPhoto(patient.getUuid());
+			}
 			File imageFile = getImageFile(patient);
+			index = createPhotoIndex(patient, imageFile);
+			if (index != null) {
+				return index.hasPhoto(patient.getUuid());
+			}
 			return imageFile != null && imageFile.exists();
 		} catch (Exception e) {
 			log.warn("Could not check photo for patient {}: {}", patient.getUuid(), e.getMessage());
@@ -30,6 +47,10 @@ public class BahmniPatientPhotoService {
 			personImageClass.getMethod("setPerson", org.openmrs.Person.class).invoke(personImage, patient);
 			personImageClass.getMethod("setBase64EncodedImage", String.class).invoke(personImage, base64Data);
 			imageService.getClass().getMethod("savePersonImage", personImageClass).invoke(imageService, personImage);
+			PatientPhotoIndex index = photoIndex;
+			if (index != null && patient.getUuid() != null) {
+				index.add(patient.getUuid());
+			}
 		} catch (Exception e) {
 			log.error("Failed to save patient photo for {}", patient.getUuid(), e);
 		}
@@ -40,6 +61,10 @@ public class BahmniPatientPhotoService {
 			File imageFile = getImageFile(patient);
 			if (imageFile != null && imageFile.exists()) {
 				if (imageFile.delete()) {
+					PatientPhotoIndex index = photoIndex;
+					if (index != null && patient.getUuid() != null) {
+						index.remove(patient.getUuid());
+					}
 					log.info("Deleted patient photo for {}", patient.getUuid());
 				} else {
 					log.warn("Failed to delete patient photo file: {}", imageFile.getAbsolutePath());
@@ -58,6 +83,24 @@ public class BahmniPatientPhotoService {
 		return (File) personImage.getClass().getMethod("getSavedImage").invoke(personImage);
 	}
 
+	private synchronized PatientPhotoIndex createPhotoIndex(org.openmrs.Patient patient, File imageFile) {
+		if (photoIndex != null) {
+			return photoIndex;
+		}
+		String uuid = patient.getUuid();
+		if (imageFile == null || uuid == null || !imageFile.getName().startsWith(uuid)) {
+			return null;
+		}
+		File directory = imageFile.getParentFile();
+		if (directory == null || !directory.isDirectory()) {
+			return null;
+		}
+		photoIndex = new PatientPhotoIndex(directory, imageFile.getName().substring(uuid.length()),
+				PHOTO_DIRECTORY_CHECK_INTERVAL_MILLIS);
+		log.info("Indexing patient photos in {}", directory.getAbsolutePath());
+		return photoIndex;
+	}
+
 	private Object getEmrImageService() throws Exception {
 		Class<?> serviceClass = Context.loadClass("org.openmrs.module.emrapi.person.image.EmrPersonImageService");
 		return Context.getRegisteredComponent("emrPersonImageService", serviceClass);
@@ -11,7 +11,19 @@ package org.bahmni.module.fhir2addlextension.api.service;
 
 import org.hl7.fhir.r4.model.Bundle;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface EncounterBundleService {
 	
 	Bundle create(Bundle bundle);
+	
+	/**
+	 * Streaming variant of {@link #create(Bundle)} for very large bundles. Entries are read one at a time from the
+	 * JSON bundle stream and persisted as soon as the entries they reference have been persisted, holding at most a
+	 * bounded number of waiting entries. The session is flushed and cleared as entries are persisted. The
+	 * transaction-response bundle, with the entries in the order they complete, is buffered in a temporary file and
+	 * written to the response stream once the transaction commits, so a failing entry fails the whole request.
+	 */
+	void ingest(InputStream bundleStream, OutputStream responseStream);
 }
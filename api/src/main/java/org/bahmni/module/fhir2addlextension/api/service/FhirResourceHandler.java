@@ -15,4 +15,9 @@ public interface FhirResourceHandler {
 	
 	Optional<MethodOutcome> invokeResourceProvider(Bundle.HTTPVerb httpVerb, Resource resource,
 	        IResourceProvider resourceProvider);
+	
+	/**
+	 * @return number of resource types that have a bound resource provider
+	 */
+	int getBoundResourceCount();
 }
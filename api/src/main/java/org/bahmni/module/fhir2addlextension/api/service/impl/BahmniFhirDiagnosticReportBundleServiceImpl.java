@@ -5,15 +5,20 @@ import ca.uhn.fhir.rest.api.PatchTypeEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.bahmni.module.fhir2addlextension.api.context.ReferenceResolutionContextHolder;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirDiagnosticReportDao;
 import org.bahmni.module.fhir2addlextension.api.helper.EncounterBundleEntriesHelper;
 import org.bahmni.module.fhir2addlextension.api.model.FhirDiagnosticReportExt;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirDiagnosticReportBundleService;
+import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirObservationService;
 import org.bahmni.module.fhir2addlextension.api.service.LabResultsEncounterService;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportBundleTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniOrderReferenceTranslator;
 import org.bahmni.module.fhir2addlextension.api.utils.BahmniFhirUtils;
+import org.bahmni.module.fhir2addlextension.api.utils.BundleResourceIndex;
+import org.bahmni.module.fhir2addlextension.api.utils.DiagnosticReportBundlePatch;
+import org.bahmni.module.fhir2addlextension.api.utils.FhirJsonPatch;
 import org.bahmni.module.fhir2addlextension.api.validators.DiagnosticReportBundlePatchValidator;
 import org.bahmni.module.fhir2addlextension.api.validators.DiagnosticReportBundleUpdateValidator;
 import org.bahmni.module.fhir2addlextension.api.validators.DiagnosticReportValidator;
@@ -23,6 +28,7 @@ import org.hl7.fhir.r4.model.DiagnosticReport;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Reference;
+import org.openmrs.Obs;
 import org.openmrs.Order;
 import org.openmrs.Patient;
 import org.openmrs.module.fhir2.FhirConstants;
@@ -47,6 +53,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -135,6 +142,10 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 	 */
 	@Override
 	public Bundle create(@Nonnull Bundle bundle) {
+		return ReferenceResolutionContextHolder.withinBundle(() -> createBundle(bundle));
+	}
+	
+	private Bundle createBundle(Bundle bundle) {
 		if (bundle == null) {
 			log.error(BUNDLE_MUST_HAVE_DIAGNOSTIC_REPORT);
 			throw new InvalidRequestException(BUNDLE_MUST_HAVE_DIAGNOSTIC_REPORT);
@@ -145,10 +156,11 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 			log.error(REPORT_MUST_HAVE_VALID_PATIENT_REFERENCE);
 			throw new InvalidRequestException(REPORT_MUST_HAVE_VALID_PATIENT_REFERENCE);
 		}
-		Function<String, Optional<Observation>> obsLocator = referenceId -> BahmniFhirUtils.findResourceInBundle(bundle, referenceId, Observation.class);
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(bundle);
+		Function<String, Optional<Observation>> obsLocator = referenceId -> bundleIndex.findResource(referenceId, Observation.class);
 
 		List<Order> basedOnOrders = identifyOrders(report);
-		Function<String, Optional<Encounter>> bundleEncounterLocator = referenceId -> BahmniFhirUtils.findResourceInBundle(bundle, referenceId, Encounter.class);
+		Function<String, Optional<Encounter>> bundleEncounterLocator = referenceId -> bundleIndex.findResource(referenceId, Encounter.class);
 		Reference encounterReference = resolveEncounter(report, omrsPatient.get(), basedOnOrders, bundleEncounterLocator);
 		report.setEncounter(encounterReference);
 		Map<String, Reference> obsReferenceMap = createResultObservations(report, encounterReference, obsLocator, basedOnOrders);
@@ -224,38 +236,43 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 															Function<String, Optional<Observation>> bundledObsLocator,
 															List<Order> basedOnOrders) {
 		Map<Observation, String> resultObservationReferenceMap = new HashMap<>();
-		List<String> preExistingObservationIds = new ArrayList<>();
+		List<String> resultIds = new ArrayList<>();
 		diagnosticReport.getResult().forEach(result -> {
-			IBaseResource res = result.getResource();
 			Optional<String> refResultId = BahmniFhirUtils.referenceToId(result.getReference());
 			if (!refResultId.isPresent()) {
 				throw new InvalidRequestException(INVALID_RESULT_OBSERVATION_REFERENCE);
 			}
-			Observation existing = findExistingObservation(refResultId.get());
-			if (existing != null) {
-				preExistingObservationIds.add(existing.getId());
-			}
+			resultIds.add(refResultId.get());
+		});
+		Set<String> preExistingObservationIds = BahmniFhirObservationService.findExistingObservationIds(
+		    fhirObservationService, resultIds);
+		for (int i = 0; i < resultIds.size(); i++) {
+			IBaseResource res = diagnosticReport.getResult().get(i).getResource();
+			String resultId = resultIds.get(i);
 			if (res != null) {
-				resultObservationReferenceMap.put((Observation) res, refResultId.get());
+				resultObservationReferenceMap.put((Observation) res, resultId);
 				validatePatientReference(diagnosticReport.getSubject(), (Observation) res);
 			} else {
 				// the report.result reference may be an existing observation that is not part of the bundle,
 				// or a new observation that is part of the bundle. We need to check both places before erroring out
-				Observation resource = bundledObsLocator.apply(refResultId.get()).orElse(existing);
+				Observation resource = bundledObsLocator.apply(resultId).orElseGet(
+				    () -> preExistingObservationIds.contains(resultId) ? findExistingObservation(resultId) : null);
 				if (resource == null) {
 					log.error(INVALID_REFERENCED_OBSERVATION_RESOURCE);
 					System.out.println(INVALID_REFERENCED_OBSERVATION_RESOURCE);
 				}
 				validatePatientReference(diagnosticReport.getSubject(), resource);
-				resultObservationReferenceMap.put(resource, refResultId.orElse(null));
+				resultObservationReferenceMap.put(resource, resultId);
 			}
-		});
+		}
 		List<Observation> resultResources = new ArrayList<>(resultObservationReferenceMap.keySet());
 
 		Function<String, Optional<Order>> orderReferenceLocator = orderUuid -> basedOnOrders.stream().filter(order -> order.getUuid().equals(orderUuid)).findFirst();
 
 		List<Observation> sortedObservations = EncounterBundleEntriesHelper.sortObservationsByDepth(resultResources);
 		Map<String, Reference> observationsReferenceMap = new HashMap<>();
+		// group members of created observations are updated together once all result observations are saved
+		Map<Obs, Set<Obs>> pendingGroupMembers = new HashMap<>();
 		for (Observation observation : sortedObservations) {
 			String resourceId = Optional.ofNullable(observation.getIdElement().getValue()).orElseGet(() -> resultObservationReferenceMap.get(observation));
 			String obsEntryId = BahmniFhirUtils.extractId(resourceId);
@@ -282,14 +299,25 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 
 			Observation persistedObservation = preExistingObservationIds.contains(obsEntryId)
 					? fhirObservationService.update(obsEntryId, observation)
-					: fhirObservationService.create(observation);
+					: createResultObservation(observation, pendingGroupMembers);
 			Reference persistedObsReference = new Reference().setReference(FhirConstants.OBSERVATION + "/" + persistedObservation.getId()).setType(FhirConstants.OBSERVATION);
 			persistedObsReference.setResource(persistedObservation);
 			observationsReferenceMap.put(obsEntryId, persistedObsReference);
 		}
+		if (!pendingGroupMembers.isEmpty()) {
+			((BahmniFhirObservationService) fhirObservationService).updateGroupMembers(pendingGroupMembers);
+		}
 		return observationsReferenceMap;
 	}
 	
+	private Observation createResultObservation(Observation observation, Map<Obs, Set<Obs>> pendingGroupMembers) {
+		if (fhirObservationService instanceof BahmniFhirObservationService) {
+			return ((BahmniFhirObservationService) fhirObservationService).createWithPendingGroupMembers(observation,
+			    pendingGroupMembers);
+		}
+		return fhirObservationService.create(observation);
+	}
+	
 	private Observation findExistingObservation(String uuid) {
 		try {
 			return fhirObservationService.get(uuid);
@@ -355,6 +383,7 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 		if (!report.hasBasedOn()) {
 			return Collections.emptyList();
 		}
+		serviceRequestReferenceTranslator.prefetch(report.getBasedOn());
 		List<Order> serviceRequests = new ArrayList<>();
 		report.getBasedOn().forEach(reference -> {
 			Order aOrder = serviceRequestReferenceTranslator.toOpenmrsType(reference);
@@ -398,11 +427,23 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 	@Override
 	public Bundle patch(@Nonnull String uuid, @Nonnull PatchTypeEnum patchType,
 	                                     @Nonnull String body, RequestDetails requestDetails) {
+		return ReferenceResolutionContextHolder.withinBundle(() -> patchBundle(uuid, patchType, body, requestDetails));
+	}
+	
+	private Bundle patchBundle(String uuid, PatchTypeEnum patchType, String body, RequestDetails requestDetails) {
 		// Only JSON Patch is supported
 		if (patchType != PatchTypeEnum.JSON_PATCH) {
 			throw new InvalidRequestException("Only JSON Patch is supported for DiagnosticReportBundle");
 		}
 		
+		Optional<String> reportPatch = DiagnosticReportBundlePatch.toReportPatch(body);
+		if (reportPatch.isPresent()) {
+			Optional<Bundle> patchedReportBundle = patchReport(uuid, reportPatch.get(), requestDetails);
+			if (patchedReportBundle.isPresent()) {
+				return patchedReportBundle.get();
+			}
+		}
+		
 		Bundle existingBundle = get(uuid);
 		if (existingBundle == null) {
 			throw new ResourceNotFoundException("DiagnosticReportBundle with UUID " + uuid + " not found");
@@ -412,10 +453,8 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 		
 		diagnosticReportBundlePatchValidator.validateNotInTerminalState(existingReport);
 		
-		List<String> tempUuidList = addTemporaryArrayElementsIfEmpty(existingReport);
-		Bundle patchedBundle = applyJsonPatchToBundle(existingBundle, body, requestDetails);
+		Bundle patchedBundle = applyJsonPatch(existingBundle, this::getReportFromBundle, body, requestDetails);
 		DiagnosticReport patchedReport = getReportFromBundle(patchedBundle);
-		removeTemporaryArrayElements(tempUuidList, patchedReport);
 
 		diagnosticReportBundlePatchValidator.validatePatchChanges(existingReport, patchedReport);
 		
@@ -424,8 +463,9 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 		List<Reference> newResultRefs = identifyNewResultReferences(existingReport, patchedReport);
 		
 		if (!newResultRefs.isEmpty()) {
+			BundleResourceIndex bundleIndex = BundleResourceIndex.of(patchedBundle);
 			Function<String, Optional<Observation>> obsLocator = 
-				referenceId -> BahmniFhirUtils.findResourceInBundle(patchedBundle, referenceId, Observation.class);
+				referenceId -> bundleIndex.findResource(referenceId, Observation.class);
 			
 			validateNewResults(patchedReport, newResultRefs, obsLocator);
 			
@@ -446,6 +486,39 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 		return getTranslator().toFhirResource(getDao().createOrUpdate(diagnosticReportExt));
 	}
 	
+	/**
+	 * Patches the report alone, for a patch that only addresses the report entry of the bundle, so that the result
+	 * observations are neither translated into the bundle nor serialized with it. A report patch that adds results
+	 * needs their observations from the bundle, so that is left to the bundle patch.
+	 * 
+	 * @return the patched bundle, or empty if the patch adds results to the report
+	 */
+	private Optional<Bundle> patchReport(String uuid, String reportPatch, RequestDetails requestDetails) {
+		FhirDiagnosticReportExt existingEntity = getDao().get(uuid);
+		if (existingEntity == null) {
+			throw new ResourceNotFoundException(
+			        "Resource of type " + resourceClass.getSimpleName() + " with ID " + uuid + " is not known");
+		}
+		DiagnosticReport existingReport = diagnosticReportTranslator.toFhirResource(existingEntity);
+		
+		diagnosticReportBundlePatchValidator.validateNotInTerminalState(existingReport);
+		
+		DiagnosticReport patchedReport = applyJsonPatch(existingReport, Function.identity(), reportPatch, requestDetails);
+		
+		diagnosticReportBundlePatchValidator.validatePatchChanges(existingReport, patchedReport);
+		
+		if (!identifyNewResultReferences(existingReport, patchedReport).isEmpty()) {
+			return Optional.empty();
+		}
+		identifyOrders(patchedReport);
+		
+		patchedReport.setId(existingReport.getId());
+		diagnosticReportValidator.validate(patchedReport);
+		FhirDiagnosticReportExt diagnosticReportExt = diagnosticReportTranslator.toOpenmrsType(patchedReport);
+		
+		return Optional.of(getTranslator().toFhirResource(getDao().createOrUpdate(diagnosticReportExt)));
+	}
+	
 	private void removeTemporaryArrayElements(List<String> tempUuidList, DiagnosticReport patchedReport) {
 		if (patchedReport.hasBasedOn()) {
 			patchedReport.getBasedOn().removeIf(ref -> tempUuidList.contains(ref.getReference()));
@@ -491,17 +564,36 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 	}
 	
 	/**
-	 * Applies JSON Patch to a bundle using openmrs fhir2 JsonPatchUtils
+	 * Applies JSON Patch to a bundle or report in the HAPI model, or else using openmrs fhir2 JsonPatchUtils. For
+	 * JsonPatchUtils the empty arrays of the report get temporary elements while the patch is applied, so that paths
+	 * into them exist in its JSON.
+	 *
+	 * @param reportOf gets the report of the resource
 	 */
-	private Bundle applyJsonPatchToBundle(Bundle existingBundle, String patchBody, RequestDetails requestDetails) {
+	private <T extends IBaseResource> T applyJsonPatch(T existingResource, Function<T, DiagnosticReport> reportOf,
+	        String patchBody, RequestDetails requestDetails) {
+		FhirContext ctx = requestDetails.getFhirContext();
+		Optional<T> patchedResource = FhirJsonPatch.applyInModel(ctx, existingResource, patchBody);
+		if (patchedResource.isPresent()) {
+			return patchedResource.get();
+		}
+
+		DiagnosticReport existingReport = reportOf.apply(existingResource);
+		List<String> tempUuidList = addTemporaryArrayElementsIfEmpty(existingReport);
+		T patchedResourceFromJson;
 		try {
-			FhirContext ctx = requestDetails.getFhirContext();
-			return (Bundle) org.openmrs.module.fhir2.api.util.JsonPatchUtils.applyJsonPatch(ctx, existingBundle, patchBody);
+			patchedResourceFromJson = org.openmrs.module.fhir2.api.util.JsonPatchUtils.applyJsonPatch(ctx,
+			    existingResource, patchBody);
 		}
 		catch (Exception e) {
 			log.error("Error applying JSON patch to DiagnosticReportBundle", e);
 			throw new InvalidRequestException("Invalid JSON patch: " + e.getMessage(), e);
 		}
+		finally {
+			removeTemporaryArrayElements(tempUuidList, existingReport);
+		}
+		removeTemporaryArrayElements(tempUuidList, reportOf.apply(patchedResourceFromJson));
+		return patchedResourceFromJson;
 	}
 	
 	/**
@@ -562,6 +654,10 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 	 */
 	@Override
 	public Bundle update(@Nonnull String uuid, @Nonnull Bundle bundle) {
+		return ReferenceResolutionContextHolder.withinBundle(() -> updateBundle(uuid, bundle));
+	}
+	
+	private Bundle updateBundle(String uuid, Bundle bundle) {
 		if (bundle == null) {
 			log.error(BUNDLE_MUST_HAVE_DIAGNOSTIC_REPORT);
 			throw new InvalidRequestException(BUNDLE_MUST_HAVE_DIAGNOSTIC_REPORT);
@@ -583,14 +679,14 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 		purgeExistingResults(existingEntity);
 		purgeExistingAttachments(existingEntity);
 		purgeExistingBasedOn(existingEntity);
-		getDao().createOrUpdate(existingEntity);
 
 		newReport.setEncounter(existingReport.getEncounter());
 		
 		List<Order> basedOnOrders = identifyOrders(newReport);
 		
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(bundle);
 		Function<String, Optional<Observation>> obsLocator =
-			referenceId -> BahmniFhirUtils.findResourceInBundle(bundle, referenceId, Observation.class);
+			referenceId -> bundleIndex.findResource(referenceId, Observation.class);
 
 		Map<String, Reference> obsReferenceMap = createResultObservations(
 			newReport,
@@ -620,12 +716,17 @@ public class BahmniFhirDiagnosticReportBundleServiceImpl extends BaseFhirService
 	}
 	
 	/**
-	 * Voids all existing result observations and clears references
+	 * Voids all existing result observations and clears references. The report itself is saved once, together with
+	 * its new results.
 	 */
 	private void purgeExistingResults(FhirDiagnosticReportExt existingEntity) {
-		existingEntity.getResults().forEach(obs -> {
-			fhirObservationService.delete(obs.getUuid());
-		});
+		if (fhirObservationService instanceof BahmniFhirObservationService) {
+			((BahmniFhirObservationService) fhirObservationService).voidObservations(existingEntity.getResults());
+		} else {
+			existingEntity.getResults().forEach(obs -> {
+				fhirObservationService.delete(obs.getUuid());
+			});
+		}
 		existingEntity.getResults().clear();
 	}
 	
@@ -1,11 +1,14 @@
 package org.bahmni.module.fhir2addlextension.api.service.impl;
 
+import ca.uhn.fhir.rest.api.PatchTypeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirDiagnosticReportDao;
 import org.bahmni.module.fhir2addlextension.api.model.FhirDiagnosticReportExt;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirDiagnosticReportService;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportTranslator;
+import org.bahmni.module.fhir2addlextension.api.utils.FhirJsonPatch;
 import org.bahmni.module.fhir2addlextension.api.validators.DiagnosticReportValidator;
 import org.hl7.fhir.r4.model.DiagnosticReport;
 import org.openmrs.module.fhir2.api.dao.FhirDao;
@@ -20,6 +23,7 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import java.util.Optional;
 
 @Component("bahmniFhirDiagnosticReportServiceImpl")
 @Primary
@@ -80,4 +84,21 @@ public class BahmniFhirDiagnosticReportServiceImpl extends BaseFhirService<Diagn
 		return getTranslator().toFhirResource(getDao().createOrUpdate(openmrsReport));
 	}
 	
+	/**
+	 * Applies a JSON Patch to the report in the HAPI model where it can, see {@link FhirJsonPatch}, and otherwise as
+	 * the base service does
+	 */
+	@Override
+	public DiagnosticReport patch(@Nonnull String uuid, @Nonnull PatchTypeEnum patchType, @Nonnull String body,
+	        RequestDetails requestDetails) {
+		if (patchType == PatchTypeEnum.JSON_PATCH && requestDetails != null) {
+			Optional<DiagnosticReport> patchedReport = FhirJsonPatch.applyInModel(requestDetails.getFhirContext(),
+			    get(uuid), body);
+			if (patchedReport.isPresent()) {
+				return update(uuid, patchedReport.get());
+			}
+		}
+		return super.patch(uuid, patchType, body, requestDetails);
+	}
+	
 }
@@ -10,6 +10,7 @@ import org.bahmni.module.fhir2addlextension.api.search.param.BahmniEpisodeOfCare
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirEpisodeOfCareService;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniEpisodeOfCareTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.EpisodeOfCareStatusTranslator;
+import org.bahmni.module.fhir2addlextension.api.utils.FhirJsonPatch;
 import org.hl7.fhir.r4.model.EpisodeOfCare;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
@@ -93,9 +94,20 @@ public class BahmniFhirEpisodeOfCareServiceImpl extends BaseFhirService<EpisodeO
 		return super.update(uuid, episodeOfCare);
 	}
 	
+	/**
+	 * Applies a JSON Patch to the episode in the HAPI model where it can, see {@link FhirJsonPatch}, and otherwise as
+	 * the base service does
+	 */
 	@Override
 	public EpisodeOfCare patch(@Nonnull String uuid, @Nonnull PatchTypeEnum patchType, @Nonnull String body,
 	        RequestDetails requestDetails) {
+		if (patchType == PatchTypeEnum.JSON_PATCH && requestDetails != null) {
+			Optional<EpisodeOfCare> patchedEpisode = FhirJsonPatch.applyInModel(requestDetails.getFhirContext(), get(uuid),
+			    body);
+			if (patchedEpisode.isPresent()) {
+				return update(uuid, patchedEpisode.get());
+			}
+		}
 		return super.patch(uuid, patchType, body, requestDetails);
 	}
 	
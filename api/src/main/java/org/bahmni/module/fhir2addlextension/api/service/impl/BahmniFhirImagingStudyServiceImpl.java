@@ -9,6 +9,7 @@ import org.bahmni.module.fhir2addlextension.api.helper.EncounterBundleEntriesHel
 import org.bahmni.module.fhir2addlextension.api.model.FhirImagingStudy;
 import org.bahmni.module.fhir2addlextension.api.search.param.BahmniImagingStudySearchParams;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirImagingStudyService;
+import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirObservationService;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirImagingStudyTranslator;
 import org.bahmni.module.fhir2addlextension.api.utils.BahmniFhirUtils;
 import org.hl7.fhir.r4.model.Extension;
@@ -33,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -77,8 +79,6 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 	
 	public static final String DEBUG_RESOLVING_OBS_MEMBER_REF = "resolving obs.hasMember ref: %s => %s%n";
 	
-	public static final String DEBUG_NO_OBSERVATION_FOUND = "No existing observation found with UUID: {}";
-	
 	private final BahmniFhirImagingStudyDao imagingStudyDao;
 	
 	private final BahmniFhirImagingStudyTranslator imagingStudyTranslator;
@@ -260,9 +260,10 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 			Map<String, Resource> containedMap) {
 
 		Map<Observation, String> observationReferenceMap = new HashMap<>();
-		List<String> preExistingObservationIds = new ArrayList<>();
 
-		collectObservationsFromExtensions(qualityObsExtensions, containedMap, observationReferenceMap, preExistingObservationIds);
+		collectObservationsFromExtensions(qualityObsExtensions, containedMap, observationReferenceMap);
+		Set<String> preExistingObservationIds = BahmniFhirObservationService.findExistingObservationIds(
+				fhirObservationService, observationReferenceMap.values());
 
 		List<Observation> sortedObservations = EncounterBundleEntriesHelper.sortObservationsByDepth(
 				new ArrayList<>(observationReferenceMap.keySet()));
@@ -271,7 +272,7 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 	}
 	
 	private void collectObservationsFromExtensions(List<Extension> qualityObsExtensions, Map<String, Resource> containedMap,
-	        Map<Observation, String> observationReferenceMap, List<String> preExistingObservationIds) {
+	        Map<Observation, String> observationReferenceMap) {
 		
 		for (Extension ext : qualityObsExtensions) {
 			Observation observation = extractObservationFromExtension(ext, containedMap);
@@ -279,10 +280,6 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 				continue;
 			}
 			String obsId = BahmniFhirUtils.extractId(observation.getId());
-			Observation existing = findExistingObservation(obsId);
-			if (existing != null) {
-				preExistingObservationIds.add(existing.getId());
-			}
 			observationReferenceMap.put(observation, obsId);
 		}
 	}
@@ -308,7 +305,7 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 	}
 	
 	private Map<String, Reference> persistObservations(List<Observation> sortedObservations,
-			Map<Observation, String> observationReferenceMap, List<String> preExistingObservationIds) {
+			Map<Observation, String> observationReferenceMap, Set<String> preExistingObservationIds) {
 
 		Map<String, Reference> observationsReferenceMap = new HashMap<>();
 
@@ -389,14 +386,4 @@ public class BahmniFhirImagingStudyServiceImpl extends BaseFhirService<ImagingSt
 		}
 	}
 	
-	private Observation findExistingObservation(String uuid) {
-		try {
-			return fhirObservationService.get(uuid);
-		}
-		catch (ResourceNotFoundException e) {
-			log.debug(DEBUG_NO_OBSERVATION_FOUND, uuid);
-		}
-		return null;
-	}
-	
 }
@@ -23,14 +23,19 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Component
 @Primary
 public class BahmniFhirObservationServiceImpl extends FhirObservationServiceImpl implements BahmniFhirObservationService {
 	
+	private static final String VOID_REASON = "Voided via FHIR API";
+	
 	@Getter(value = AccessLevel.PROTECTED)
 	@Setter(onMethod_ = @Autowired)
 	private BahmniObsDao bahmniObsDao;
@@ -69,6 +74,15 @@ public class BahmniFhirObservationServiceImpl extends FhirObservationServiceImpl
 	
 	@Override
 	public Observation create(@Nonnull Observation newResource) {
+		Map<Obs, Set<Obs>> pendingGroupMembers = new HashMap<>();
+		Observation resource = createWithPendingGroupMembers(newResource, pendingGroupMembers);
+		pendingGroupMembers.forEach(bahmniObsDao::updateObsMember);
+		return resource;
+	}
+	
+	@Override
+	public Observation createWithPendingGroupMembers(@Nonnull Observation newResource,
+	        @Nonnull Map<Obs, Set<Obs>> pendingGroupMembers) {
 		if (newResource == null) {
 			throw new InvalidRequestException("A resource of type " + resourceClass.getSimpleName() + " must be supplied");
 		}
@@ -83,8 +97,25 @@ public class BahmniFhirObservationServiceImpl extends FhirObservationServiceImpl
 		}
 		
 		Obs updatedObs = getDao().createOrUpdate(openmrsObj);
-		bahmniObsDao.updateObsMember(updatedObs, groupMembers);
+		if (groupMembers != null && !groupMembers.isEmpty()) {
+			pendingGroupMembers.put(updatedObs, groupMembers);
+		}
 		Observation resource = getTranslator().toFhirResource(updatedObs);
 		return resource;
 	}
+	
+	@Override
+	public void updateGroupMembers(@Nonnull Map<Obs, Set<Obs>> pendingGroupMembers) {
+		bahmniObsDao.updateObsMembers(pendingGroupMembers);
+	}
+	
+	@Override
+	public Set<String> getExistingObservationIds(@Nonnull Collection<String> observationIds) {
+		return bahmniObsDao.getExistingObsUuids(observationIds);
+	}
+	
+	@Override
+	public void voidObservations(@Nonnull Collection<Obs> obs) {
+		bahmniObsDao.voidObs(obs, VOID_REASON);
+	}
 }
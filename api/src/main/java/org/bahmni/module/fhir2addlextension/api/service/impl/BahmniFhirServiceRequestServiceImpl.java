@@ -8,6 +8,7 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirServiceRequestDao;
 import org.bahmni.module.fhir2addlextension.api.search.param.BahmniServiceRequestSearchParams;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirServiceRequestService;
@@ -82,13 +83,10 @@ public class BahmniFhirServiceRequestServiceImpl extends BaseFhirService<Service
 			throw new InvalidRequestException("Number of visits parameter is required");
 		}
 		
-		ReferenceAndListParam encounterReferencesByNumberOfVisit = dao.getEncounterReferencesByNumberOfVisit(numberOfVisits,
-		    patientReference);
-		if (encounterReferencesByNumberOfVisit == null) {
-			return null;
-		}
 		SearchParameterMap theParams = new SearchParameterMap()
-		        .addParameter(FhirConstants.ENCOUNTER_REFERENCE_SEARCH_HANDLER, encounterReferencesByNumberOfVisit)
+		        .addParameter(FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER,
+		            new ReferenceAndListParam().addAnd(new ReferenceOrListParam().add(patientReference)))
+		        .addParameter(BahmniFhirConstants.NUMBER_OF_VISITS_SEARCH_HANDLER, numberOfVisits)
 		        .addParameter(FhirConstants.CATEGORY_SEARCH_HANDLER, category)
 		        .addParameter(FhirConstants.INCLUDE_SEARCH_HANDLER, includes)
 		        .addParameter(FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER, revIncludes);
@@ -9,6 +9,8 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
+import org.bahmni.module.fhir2addlextension.api.dao.ConceptSetMemberDao;
+import org.bahmni.module.fhir2addlextension.api.helper.ValueSetExpansionCache;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirValueSetService;
 import org.hl7.fhir.r4.model.StringType;
 import org.hl7.fhir.r4.model.ValueSet;
@@ -16,6 +18,7 @@ import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir2.api.impl.FhirValueSetServiceImpl;
 import org.openmrs.util.LocaleUtility;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +35,12 @@ public class BahmniFhirValueSetServiceImpl extends FhirValueSetServiceImpl imple
 	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
 	private ConceptService conceptService;
 	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private ValueSetExpansionCache expansionCache;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private ConceptSetMemberDao conceptSetMemberDao;
+	
 	@Override
 	public ValueSet expandedValueSet(@Nonnull String valueSetId) {
 		
@@ -48,7 +57,7 @@ public class BahmniFhirValueSetServiceImpl extends FhirValueSetServiceImpl imple
 		}
 		
 		// Create hierarchical expansion
-		ValueSet.ValueSetExpansionComponent expansion = createExpansion(concept);
+		ValueSet.ValueSetExpansionComponent expansion = getExpansion(concept);
 		valueSet.setExpansion(expansion);
 		
 		return valueSet;
@@ -67,76 +76,101 @@ public class BahmniFhirValueSetServiceImpl extends FhirValueSetServiceImpl imple
 
         Concept filteredConcept = conceptsByName.get(0);
         ValueSet valueSet = getTranslator().toFhirResource(filteredConcept);
-        ValueSet.ValueSetExpansionComponent expansion = createExpansion(filteredConcept);
+        ValueSet.ValueSetExpansionComponent expansion = getExpansion(filteredConcept);
         valueSet.setExpansion(expansion);
 
         return valueSet;
     }
 	
+	private ValueSet.ValueSetExpansionComponent getExpansion(Concept concept) {
+		return expansionCache.get(concept.getUuid(), Context.getLocale(), () -> createExpansion(concept));
+	}
+	
 	/**
 	 * Creates the expansion component for a concept with hierarchical structure Only includes
 	 * setMembers of the root concept, not the root concept itself
 	 */
 	private ValueSet.ValueSetExpansionComponent createExpansion(Concept concept) {
-
-	       ValueSet.ValueSetExpansionComponent expansion = new ValueSet.ValueSetExpansionComponent();
-	       List<ValueSet.ValueSetExpansionContainsComponent> contains = new ArrayList<>();
-
-	       // Add only the setMembers of the root concept, not the root concept itself
-	       Collection<Concept> setMembers = concept.getSetMembers();
-	       if (setMembers != null && !setMembers.isEmpty()) {
-	           for (Concept memberConcept : setMembers) {
-	               if (memberConcept != null) {
-	                   // Create a new path set for each top-level branch to track ancestors
-	                   Set<String> currentPath = new HashSet<>();
-	                   currentPath.add(concept.getUuid()); // Add root to path
-	                   addConceptHierarchically(memberConcept, contains, currentPath);
-	               }
-	           }
-	       }
-
-	       expansion.setContains(contains);
-	       expansion.setTotal(contains.size());
-	       expansion.setTimestamp(new Date());
-
-	       return expansion;
-	   }
+		ValueSet.ValueSetExpansionComponent expansion = new ValueSet.ValueSetExpansionComponent();
+		List<ValueSet.ValueSetExpansionContainsComponent> contains = new ArrayList<>();
+		
+		Map<String, List<Concept>> setMembersByConcept = loadSetMemberClosure(concept);
+		
+		// Depth first walk with an explicit stack. currentPath holds the ancestors of the concept being visited, so
+		// that a concept is skipped where it would be its own descendant, while it may still appear in other branches
+		Set<String> currentPath = new HashSet<>();
+		currentPath.add(concept.getUuid());
+		Deque<ExpansionStep> steps = new ArrayDeque<>();
+		pushSetMembers(steps, setMembersByConcept.get(concept.getUuid()), contains);
+		while (!steps.isEmpty()) {
+			ExpansionStep step = steps.pop();
+			if (step.leaving) {
+				currentPath.remove(step.concept.getUuid());
+				continue;
+			}
+			if (currentPath.contains(step.concept.getUuid())) {
+				continue;
+			}
+			ValueSet.ValueSetExpansionContainsComponent component = createContainsComponent(step.concept);
+			step.contains.add(component);
+			List<Concept> setMembers = setMembersByConcept.get(step.concept.getUuid());
+			if (setMembers != null && !setMembers.isEmpty()) {
+				currentPath.add(step.concept.getUuid());
+				steps.push(new ExpansionStep(step.concept, null, true));
+				pushSetMembers(steps, setMembers, component.getContains());
+			}
+		}
+		
+		expansion.setContains(contains);
+		expansion.setTotal(contains.size());
+		expansion.setTimestamp(new Date());
+		
+		return expansion;
+	}
 	
 	/**
-	 * Adds concepts hierarchically (parent-child relationships preserved)
+	 * Loads the set members of the concept and of all its descendants, one level at a time, so that each level
+	 * takes a single query rather than one per concept
 	 * 
-	 * @param concept The concept to add
-	 * @param contains The list to add the concept to
-	 * @param currentPath Set of UUIDs in the current path to prevent cycles within a branch
+	 * @return set members keyed by the uuid of their concept set
 	 */
-	private void addConceptHierarchically(Concept concept, List<ValueSet.ValueSetExpansionContainsComponent> contains,
-	                                         Set<String> currentPath) {
-
-	       // Check if this concept is already in the current path (would create a cycle)
-	       if (currentPath.contains(concept.getUuid())) {
-	           return; // Avoid infinite loops within this branch
-	       }
-
-	       ValueSet.ValueSetExpansionContainsComponent parentComponent = createContainsComponent(concept);
-	       List<ValueSet.ValueSetExpansionContainsComponent> childContains = new ArrayList<>();
-
-	       // Process child concepts from setMembers
-	       Collection<Concept> setMembers = concept.getSetMembers();
-	       if (setMembers != null && !setMembers.isEmpty()) {
-	           // Add current concept to path before processing children
-	           Set<String> childPath = new HashSet<>(currentPath);
-	           childPath.add(concept.getUuid());
-	           
-	           for (Concept memberConcept : setMembers) {
-	               if (memberConcept != null) {
-	                   addConceptHierarchically(memberConcept, childContains, childPath);
-	               }
-	           }
-	       }
-
-	       parentComponent.setContains(childContains);
-	       contains.add(parentComponent);
-	   }
+	private Map<String, List<Concept>> loadSetMemberClosure(Concept concept) {
+		Map<String, List<Concept>> setMembersByConcept = new HashMap<>();
+		Set<String> loadedConcepts = new HashSet<>();
+		List<Concept> currentLevel = Collections.singletonList(concept);
+		loadedConcepts.add(concept.getUuid());
+		while (!currentLevel.isEmpty()) {
+			Map<String, List<Concept>> levelSetMembers = conceptSetMemberDao.getSetMembers(currentLevel);
+			setMembersByConcept.putAll(levelSetMembers);
+			List<Concept> nextLevel = new ArrayList<>();
+			for (List<Concept> setMembers : levelSetMembers.values()) {
+				if (setMembers == null) {
+					continue;
+				}
+				for (Concept memberConcept : setMembers) {
+					if (memberConcept != null && loadedConcepts.add(memberConcept.getUuid())) {
+						nextLevel.add(memberConcept);
+					}
+				}
+			}
+			currentLevel = nextLevel;
+		}
+		return setMembersByConcept;
+	}
+	
+	private void pushSetMembers(Deque<ExpansionStep> steps, List<Concept> setMembers,
+	        List<ValueSet.ValueSetExpansionContainsComponent> contains) {
+		if (setMembers == null) {
+			return;
+		}
+		// pushed in reverse, so that members are visited and added in set order
+		for (int i = setMembers.size() - 1; i >= 0; i--) {
+			Concept memberConcept = setMembers.get(i);
+			if (memberConcept != null) {
+				steps.push(new ExpansionStep(memberConcept, contains, false));
+			}
+		}
+	}
 	
 	/**
 	 * Creates a contains component for a concept
@@ -162,4 +196,19 @@ public class BahmniFhirValueSetServiceImpl extends FhirValueSetServiceImpl imple
 		
 		return component;
 	}
+	
+	private static class ExpansionStep {
+		
+		private final Concept concept;
+		
+		private final List<ValueSet.ValueSetExpansionContainsComponent> contains;
+		
+		private final boolean leaving;
+		
+		private ExpansionStep(Concept concept, List<ValueSet.ValueSetExpansionContainsComponent> contains, boolean leaving) {
+			this.concept = concept;
+			this.contains = contains;
+			this.leaving = leaving;
+		}
+	}
 }
@@ -9,45 +9,100 @@
 
 package org.bahmni.module.fhir2addlextension.api.service.impl;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.bahmni.module.fhir2addlextension.api.context.ReferenceResolutionContextHolder;
 import org.bahmni.module.fhir2addlextension.api.domain.EncounterBundle;
 import org.bahmni.module.fhir2addlextension.api.helper.EncounterBundleEntriesHelper;
+import org.bahmni.module.fhir2addlextension.api.helper.EncounterBundleEntryReader;
 import org.bahmni.module.fhir2addlextension.api.service.EncounterBundleService;
 import org.bahmni.module.fhir2addlextension.api.service.FhirResourceHandler;
 import org.bahmni.module.fhir2addlextension.api.validators.EncounterBundleValidator;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.ResourceType;
+import org.openmrs.Auditable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Component
 @Transactional
 @Slf4j
 public class EncounterBundleServiceImpl implements EncounterBundleService {
 	
+	/**
+	 * Maximum number of streamed entries held while they wait for the entries they reference
+	 */
+	static final int STREAMING_LOOK_AHEAD_LIMIT = 500;
+	
+	/**
+	 * Number of streamed entries persisted between flushing the session and evicting what they wrote from it
+	 */
+	static final int SESSION_FLUSH_INTERVAL = 100;
+	
 	final private FhirResourceHandler resourceHandler;
 	
 	//@Autowired
 	private EncounterBundleValidator encounterBundleValidator;
 	
+	private final FhirContext fhirContext;
+	
+	private final SessionFactory sessionFactory;
+	
 	@Autowired
-	public EncounterBundleServiceImpl(FhirResourceHandler resourceHandler, EncounterBundleValidator encounterBundleValidator) {
+	public EncounterBundleServiceImpl(FhirResourceHandler resourceHandler, EncounterBundleValidator encounterBundleValidator,
+	    @Qualifier("fhirR4") FhirContext fhirContext, @Qualifier("sessionFactory") SessionFactory sessionFactory) {
 		this.resourceHandler = resourceHandler;
 		this.encounterBundleValidator = encounterBundleValidator;
+		this.fhirContext = fhirContext;
+		this.sessionFactory = sessionFactory;
 	}
 	
 	@Override
 	public Bundle create(Bundle bundle) {
+		return ReferenceResolutionContextHolder.withinBundle(() -> createBundle(bundle));
+	}
+	
+	private Bundle createBundle(Bundle bundle) {
 		/*
 		  We want to handle the whole request as a transaction.
 		  - TODO: Define FHIR IG for the bundle.
@@ -63,33 +118,11 @@ public class EncounterBundleServiceImpl implements EncounterBundleService {
 
 		Map<String, Bundle.BundleEntryComponent> processedResourceEntryMap = new HashMap<>();
 		for (Bundle.BundleEntryComponent orderedEntry : orderedEntries) {
-			try {
-				Bundle.BundleEntryComponent referenceResolvedEntry = EncounterBundleEntriesHelper.resolveReferences(orderedEntry, processedResourceEntryMap);
-				Optional<Bundle.BundleEntryComponent> bundleEntryComponent = createOrUpdateResource(referenceResolvedEntry);
-				if (bundleEntryComponent.isPresent()) {
-					processedResourceEntryMap.put(orderedEntry.getFullUrl(), bundleEntryComponent.get());
-				} else {
-					throw new InvalidRequestException(String.format("Could not process resource [%s]",
-					    referenceResolvedEntry.getFullUrl()));
-				}
-			}
-			catch (UndeclaredThrowableException e) {
-				String errorMessage = String.format("Error occurred while processing bundle entry [%s]",
-				    orderedEntry.getFullUrl());
-				log.error(errorMessage, e);
-				throw new InvalidRequestException(String.format("%s. %s", errorMessage, e.getUndeclaredThrowable()
-				        .getCause().getMessage()));
-				
-			}
-			catch (Exception e) {
-				String errorMessage = String.format("Error occurred while processing bundle entry [%s]",
-				    orderedEntry.getFullUrl());
-				log.error(errorMessage, e);
-				throw new InvalidRequestException(String.format("%s. %s", errorMessage, e.getMessage()));
-			}
+			Bundle.BundleEntryComponent responseEntry = processEntry(orderedEntry,
+			    entry -> EncounterBundleEntriesHelper.resolveReferences(entry, processedResourceEntryMap));
+			processedResourceEntryMap.put(orderedEntry.getFullUrl(), responseEntry);
 		}
-
-
+		
 		Bundle responseBundle = new EncounterBundle();
 		for(Bundle.BundleEntryComponent entry: bundleEntryComponents) {
 			responseBundle.addEntry(processedResourceEntryMap.get(entry.getFullUrl()));
@@ -97,6 +130,240 @@ public class EncounterBundleServiceImpl implements EncounterBundleService {
 		return responseBundle;
 	}
 	
+	@Override
+	public void ingest(InputStream bundleStream, OutputStream responseStream) {
+		ReferenceResolutionContextHolder.withinBundle(() -> {
+			ingestBundle(bundleStream, responseStream);
+			return null;
+		});
+	}
+	
+	private void ingestBundle(InputStream bundleStream, OutputStream responseStream) {
+		IParser fhirParser = fhirContext.newJsonParser();
+		Map<String, String> processedResourceIds = new HashMap<>();
+		PendingEntries pendingEntries = new PendingEntries();
+		int encounterEntryCount = 0;
+		int entriesSinceSessionEviction = 0;
+		Date writtenSince = new Date();
+		boolean bundleTypeValidated = false;
+		File responseFile = createResponseFile();
+		try {
+			try (EncounterBundleEntryReader entryReader = new EncounterBundleEntryReader(bundleStream, fhirParser);
+			        JsonGenerator responseWriter = new JsonFactory().createGenerator(
+			            new BufferedOutputStream(new FileOutputStream(responseFile)), JsonEncoding.UTF8)) {
+				startResponseBundle(responseWriter);
+				Bundle.BundleEntryComponent entry;
+				while ((entry = entryReader.nextEntry()) != null) {
+					if (!bundleTypeValidated && entryReader.getBundleType() != null) {
+						encounterBundleValidator.validateBundleType(entryReader.getBundleType());
+						bundleTypeValidated = true;
+					}
+					encounterBundleValidator.validateBundleEntry(entry);
+					if (entry.getResource().getResourceType() == ResourceType.Encounter) {
+						encounterEntryCount++;
+					}
+					entriesSinceSessionEviction += processWhenReady(entry, pendingEntries, processedResourceIds,
+					    responseWriter, fhirParser);
+					if (entriesSinceSessionEviction >= SESSION_FLUSH_INTERVAL) {
+						flushAndEvictWritten(writtenSince);
+						entriesSinceSessionEviction = 0;
+						writtenSince = new Date();
+					}
+					if (pendingEntries.size() > STREAMING_LOOK_AHEAD_LIMIT) {
+						throw new InvalidRequestException(String.format(
+						    "More than %d bundle entries are waiting for referenced entries. Entries must appear after "
+						            + "the entries they reference, within %d entries. Waiting entries start at [%s]",
+						    STREAMING_LOOK_AHEAD_LIMIT, STREAMING_LOOK_AHEAD_LIMIT, pendingEntries.getFullUrls().get(0)));
+					}
+				}
+				if (!bundleTypeValidated) {
+					encounterBundleValidator.validateBundleType(entryReader.getBundleType());
+				}
+				if (pendingEntries.size() > 0) {
+					throw new InvalidRequestException(String.format(
+					    "Could not resolve references of bundle entries [%s]",
+					    String.join(", ", pendingEntries.getFullUrls())));
+				}
+				encounterBundleValidator.validateEncounterEntryCount(encounterEntryCount);
+				responseWriter.writeEndArray();
+				responseWriter.writeEndObject();
+			}
+			catch (IOException e) {
+				log.error("Error occurred while streaming encounter bundle", e);
+				throw new InvalidRequestException("Could not read bundle. " + e.getMessage());
+			}
+			writeResponseAfterCommit(responseFile, responseStream);
+		}
+		catch (RuntimeException e) {
+			deleteResponseFile(responseFile);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Persists the entry if the entries it references have been persisted, or else buffers it until they are. Each
+	 * persisted entry releases the buffered entries that were only waiting for it, which are persisted in turn, and
+	 * the response entry of every persisted entry is written.
+	 *
+	 * @return the number of entries persisted
+	 */
+	private int processWhenReady(Bundle.BundleEntryComponent entry, PendingEntries pendingEntries,
+	        Map<String, String> processedResourceIds, JsonGenerator responseWriter, IParser fhirParser) throws IOException {
+		if (!pendingEntries.isReady(entry, processedResourceIds)) {
+			return 0;
+		}
+		int processedCount = 0;
+		Deque<Bundle.BundleEntryComponent> readyEntries = new ArrayDeque<>();
+		readyEntries.add(entry);
+		while (!readyEntries.isEmpty()) {
+			Bundle.BundleEntryComponent readyEntry = readyEntries.poll();
+			Bundle.BundleEntryComponent responseEntry = processEntry(readyEntry,
+			    resolvedEntry -> EncounterBundleEntriesHelper.resolveReferencesToIds(resolvedEntry, processedResourceIds));
+			processedResourceIds.put(readyEntry.getFullUrl(),
+			    responseEntry.hasResource() ? responseEntry.getResource().getId() : null);
+			writeResponseEntry(responseWriter, responseEntry, fhirParser);
+			processedCount++;
+			readyEntries.addAll(pendingEntries.release(readyEntry.getFullUrl()));
+		}
+		return processedCount;
+	}
+	
+	/**
+	 * Writes the persisted entries to the database and evicts the objects they wrote, so the session does not grow
+	 * with the bundle. Objects that references of the bundle resolved to stay in the session, as later entries may
+	 * refer to them again, and so does everything the entries only read.
+	 */
+	private void flushAndEvictWritten(Date writtenSince) {
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		Set<Object> resolvedObjects = ReferenceResolutionContextHolder.getResolvedObjects();
+		PersistenceContext persistenceContext = session.unwrap(SessionImplementor.class).getPersistenceContext();
+		for (Map.Entry<Object, EntityEntry> managedEntity : persistenceContext.reentrantSafeEntityEntries()) {
+			Object entity = managedEntity.getKey();
+			if (!resolvedObjects.contains(entity) && isWrittenSince(entity, writtenSince) && session.contains(entity)) {
+				session.evict(entity);
+			}
+		}
+	}
+	
+	private static boolean isWrittenSince(Object entity, Date writtenSince) {
+		if (!(entity instanceof Auditable)) {
+			return false;
+		}
+		Auditable auditable = (Auditable) entity;
+		return isNotBefore(auditable.getDateCreated(), writtenSince) || isNotBefore(auditable.getDateChanged(), writtenSince);
+	}
+	
+	private static boolean isNotBefore(Date date, Date since) {
+		return date != null && !date.before(since);
+	}
+	
+	private void startResponseBundle(JsonGenerator responseWriter) throws IOException {
+		responseWriter.writeStartObject();
+		responseWriter.writeStringField("resourceType", "Bundle");
+		responseWriter.writeStringField("type", Bundle.BundleType.TRANSACTIONRESPONSE.toCode());
+		responseWriter.writeArrayFieldStart("entry");
+	}
+	
+	private void writeResponseEntry(JsonGenerator responseWriter, Bundle.BundleEntryComponent responseEntry,
+	        IParser fhirParser) throws IOException {
+		responseWriter.writeStartObject();
+		if (responseEntry.hasResource()) {
+			responseWriter.writeFieldName("resource");
+			responseWriter.writeRawValue(fhirParser.encodeResourceToString(responseEntry.getResource()));
+		}
+		responseWriter.writeObjectFieldStart("response");
+		responseWriter.writeStringField("status", responseEntry.getResponse().getStatus());
+		if (responseEntry.getResponse().hasOutcome()) {
+			responseWriter.writeFieldName("outcome");
+			responseWriter.writeRawValue(fhirParser.encodeResourceToString(responseEntry.getResponse().getOutcome()));
+		}
+		responseWriter.writeEndObject();
+		responseWriter.writeEndObject();
+	}
+	
+	private File createResponseFile() {
+		try {
+			return File.createTempFile("encounter-bundle-response", ".json");
+		}
+		catch (IOException e) {
+			log.error("Could not create file for the response of streamed encounter bundle", e);
+			throw new InternalErrorException("Could not buffer bundle response", e);
+		}
+	}
+	
+	/**
+	 * The response is only sent once the transaction has committed, so that a client never receives entries for
+	 * resources that were rolled back. Until then it is kept in the response file, and if the transaction rolls back
+	 * the error is reported as a regular error response instead.
+	 */
+	private void writeResponseAfterCommit(File responseFile, OutputStream responseStream) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			writeResponse(responseFile, responseStream);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+	
+			@Override
+			public void afterCommit() {
+				writeResponse(responseFile, responseStream);
+			}
+	
+			@Override
+			public void afterCompletion(int status) {
+				deleteResponseFile(responseFile);
+			}
+		});
+	}
+	
+	private void writeResponse(File responseFile, OutputStream responseStream) {
+		try {
+			Files.copy(responseFile.toPath(), responseStream);
+			responseStream.flush();
+		}
+		catch (IOException e) {
+			log.error("Could not write response of streamed encounter bundle", e);
+			throw new InternalErrorException("Could not write bundle response", e);
+		}
+		finally {
+			deleteResponseFile(responseFile);
+		}
+	}
+	
+	private void deleteResponseFile(File responseFile) {
+		if (responseFile.exists() && !responseFile.delete()) {
+			log.warn("Could not delete response file {} of streamed encounter bundle", responseFile);
+		}
+	}
+	
+	private Bundle.BundleEntryComponent processEntry(Bundle.BundleEntryComponent orderedEntry,
+	        UnaryOperator<Bundle.BundleEntryComponent> referenceResolver) {
+		try {
+			Bundle.BundleEntryComponent referenceResolvedEntry = referenceResolver.apply(orderedEntry);
+			Optional<Bundle.BundleEntryComponent> bundleEntryComponent = createOrUpdateResource(referenceResolvedEntry);
+			if (bundleEntryComponent.isPresent()) {
+				return bundleEntryComponent.get();
+			} else {
+				throw new InvalidRequestException(String.format("Could not process resource [%s]",
+				    referenceResolvedEntry.getFullUrl()));
+			}
+		}
+		catch (UndeclaredThrowableException e) {
+			String errorMessage = String.format("Error occurred while processing bundle entry [%s]",
+			    orderedEntry.getFullUrl());
+			log.error(errorMessage, e);
+			throw new InvalidRequestException(String.format("%s. %s", errorMessage, e.getUndeclaredThrowable()
+			        .getCause().getMessage()));
+			
+		}
+		catch (Exception e) {
+			String errorMessage = String.format("Error occurred while processing bundle entry [%s]",
+			    orderedEntry.getFullUrl());
+			log.error(errorMessage, e);
+			throw new InvalidRequestException(String.format("%s. %s", errorMessage, e.getMessage()));
+		}
+	}
+	
 	/**
 	 * Consideration: 1. We can restrict adding any resource def or operations on the patient
 	 * resource. 2. We inject respective openmrs fhirResource providers and delegate to them,
@@ -137,4 +404,62 @@ public class EncounterBundleServiceImpl implements EncounterBundleService {
 		            resource.getClass().getName()));
 		return Optional.empty();
 	}
+	
+	/**
+	 * Streamed entries waiting for entries they reference, in the order they were read. Each waiting entry keeps the
+	 * number of referenced entries it still waits for, and each referenced entry the entries waiting for it, so
+	 * persisting an entry only visits the entries that reference it.
+	 */
+	private static class PendingEntries {
+		
+		private final Map<Bundle.BundleEntryComponent, Integer> pendingReferenceCounts = new LinkedHashMap<>();
+		
+		private final Map<String, List<Bundle.BundleEntryComponent>> waitingEntries = new HashMap<>();
+		
+		/**
+		 * @return true if the entry can be persisted now, or else false after buffering it
+		 */
+		boolean isReady(Bundle.BundleEntryComponent entry, Map<String, String> processedResourceIds) {
+			if (entry.getRequest().getMethod() == Bundle.HTTPVerb.DELETE) {
+				return true;
+			}
+			int pendingReferenceCount = 0;
+			for (String reference : EncounterBundleEntriesHelper.getEntryReferences(entry)) {
+				if (!processedResourceIds.containsKey(reference)) {
+					waitingEntries.computeIfAbsent(reference, key -> new ArrayList<>()).add(entry);
+					pendingReferenceCount++;
+				}
+			}
+			if (pendingReferenceCount == 0) {
+				return true;
+			}
+			pendingReferenceCounts.put(entry, pendingReferenceCount);
+			return false;
+		}
+		
+		/**
+		 * @return the buffered entries that only waited for the persisted entry, which are no longer buffered
+		 */
+		List<Bundle.BundleEntryComponent> release(String processedFullUrl) {
+			List<Bundle.BundleEntryComponent> readyEntries = new ArrayList<>();
+			for (Bundle.BundleEntryComponent waitingEntry : waitingEntries.getOrDefault(processedFullUrl,
+			    Collections.emptyList())) {
+				if (pendingReferenceCounts.merge(waitingEntry, -1, Integer::sum) == 0) {
+					pendingReferenceCounts.remove(waitingEntry);
+					readyEntries.add(waitingEntry);
+				}
+			}
+			waitingEntries.remove(processedFullUrl);
+			return readyEntries;
+		}
+		
+		int size() {
+			return pendingReferenceCounts.size();
+		}
+		
+		List<String> getFullUrls() {
+			return pendingReferenceCounts.keySet().stream().map(Bundle.BundleEntryComponent::getFullUrl)
+			        .collect(Collectors.toList());
+		}
+	}
 }
@@ -38,33 +38,40 @@ import org.openmrs.module.fhir2.FhirActivator;
 import org.openmrs.module.fhir2.api.annotations.R4Provider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Component
 @Transactional
 @Slf4j
-public class FhirResourceHandlerImpl implements FhirResourceHandler {
+public class FhirResourceHandlerImpl implements FhirResourceHandler, ApplicationListener<ContextRefreshedEvent> {
     private final FhirContext fhirContext;
 
     private Map<Bundle.HTTPVerb, RequestTypeEnum> httpVerbToRequestTypeEnum = new HashMap<>();
-    private Map<Class, IResourceProvider> resourceProviderMap = new HashMap<>();
-    private Map<Class, Map<String, ResourceBinding>> resourceBindingMap = new HashMap<>();
+    private volatile Map<Class<?>, IResourceProvider> resourceProviderRegistry;
+    private final Map<Class<?>, Map<Bundle.HTTPVerb, InvocationPlan>> invocationPlanMap = new ConcurrentHashMap<>();
 
     @Autowired
     public FhirResourceHandlerImpl(@Qualifier("fhirR4") FhirContext fhirContext) {
@@ -74,19 +81,62 @@ public class FhirResourceHandlerImpl implements FhirResourceHandler {
 
     @Override
     public Optional<IResourceProvider> getResourceProvider(Class clazz) {
-        IResourceProvider aProvider = resourceProviderMap.get(clazz);
-        if (aProvider != null) {
-            return Optional.of(aProvider);
+        return Optional.ofNullable(getResourceProviderRegistry().get(clazz));
+    }
+
+    @Override
+    public int getBoundResourceCount() {
+        return getResourceProviderRegistry().size();
+    }
+
+    /**
+     * Builds the resource type to provider registry once the application context is refreshed, along with the
+     * invocation plans of every registered provider. The registry is replaced as a whole, so request threads read
+     * an immutable map without locking. A provider whose methods can not be bound fails the refresh instead of the
+     * first bundle that needs it.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        ApplicationContext fhirApplicationContext = FhirActivator.getApplicationContext();
+        if (fhirApplicationContext != null && fhirApplicationContext != event.getApplicationContext()) {
+            //child contexts publish their refresh events to the parent context as well
+            return;
         }
-        ConfigurableApplicationContext context = FhirActivator.getApplicationContext();
+        this.resourceProviderRegistry = buildResourceProviderRegistry(event.getApplicationContext());
+    }
+
+    private Map<Class<?>, IResourceProvider> getResourceProviderRegistry() {
+        Map<Class<?>, IResourceProvider> registry = resourceProviderRegistry;
+        if (registry != null) {
+            return registry;
+        }
+        synchronized (this) {
+            if (resourceProviderRegistry == null) {
+                resourceProviderRegistry = buildResourceProviderRegistry(FhirActivator.getApplicationContext());
+            }
+            return resourceProviderRegistry;
+        }
+    }
+
+    private Map<Class<?>, IResourceProvider> buildResourceProviderRegistry(ApplicationContext context) {
         Set<String> validBeanNames = Arrays.stream(context.getBeanNamesForAnnotation(R4Provider.class))
                 .collect(Collectors.toSet());
-        List<IResourceProvider> resourceProviders = context.getBeansOfType(IResourceProvider.class).entrySet().stream()
+        Map<Class<?>, IResourceProvider> registry = new HashMap<>();
+        context.getBeansOfType(IResourceProvider.class).entrySet().stream()
                 .filter(entry -> validBeanNames.contains(entry.getKey())).map(Map.Entry::getValue)
-                .collect(Collectors.toList());
-        Optional<IResourceProvider> resourceProvider = resourceProviders.stream().filter(provider -> provider.getResourceType().equals(clazz)).findFirst();
-        resourceProvider.ifPresent(provider -> resourceProviderMap.put(clazz, provider));
-        return resourceProvider;
+                .forEach(provider -> registry.putIfAbsent(provider.getResourceType(), provider));
+        for (IResourceProvider resourceProvider : registry.values()) {
+            try {
+                getInvocationPlans(resourceProvider);
+            } catch (RuntimeException e) {
+                String errMsg = String.format("Could not bind resource provider [%s] for resource [%s]",
+                        resourceProvider.getClass().getName(), resourceProvider.getResourceType().getSimpleName());
+                log.error(errMsg, e);
+                throw new ConfigurationException(errMsg, e);
+            }
+        }
+        log.info("Bound {} FHIR resources to resource providers", registry.size());
+        return Collections.unmodifiableMap(registry);
     }
 
     @Override
@@ -120,11 +170,6 @@ public class FhirResourceHandlerImpl implements FhirResourceHandler {
     }
 
     private Map<String, ResourceBinding> getResourceBindingMap(final IResourceProvider resourceProvider) {
-        Map<String, ResourceBinding> bindingMap = resourceBindingMap.get(resourceProvider.getClass());
-        if (bindingMap != null) {
-            return bindingMap;
-        }
-
         Map<String, ResourceBinding> myResourceNameToBinding = new HashMap<>();
         ResourceBinding myGlobalBinding = new ResourceBinding();
         ResourceBinding myServerBinding = new ResourceBinding();
@@ -180,7 +225,6 @@ public class FhirResourceHandlerImpl implements FhirResourceHandler {
             resourceBinding.addMethod(foundMethodBinding);
             log.debug(" * Method: {}#{} is a handler", resourceProvider.getClass(), m.getName());
         }
-        resourceBindingMap.put(resourceProvider.getClass(), myResourceNameToBinding);
         return myResourceNameToBinding;
     }
 
@@ -198,45 +242,107 @@ public class FhirResourceHandlerImpl implements FhirResourceHandler {
 
     }
 
-    private Optional<MethodOutcome> invokeResourceProviderInternal(Bundle.HTTPVerb httpVerb, Resource resource, IResourceProvider resourceProvider) throws IllegalAccessException, InvocationTargetException {
+    private Optional<MethodOutcome> invokeResourceProviderInternal(Bundle.HTTPVerb httpVerb, Resource resource, IResourceProvider resourceProvider) throws InvocationTargetException {
+        InvocationPlan invocationPlan = getInvocationPlans(resourceProvider).get(httpVerb);
+        if (invocationPlan == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(invocationPlan.invoke(resourceProvider, resource));
+    }
+
+    private Map<Bundle.HTTPVerb, InvocationPlan> getInvocationPlans(IResourceProvider resourceProvider) {
+        return invocationPlanMap.computeIfAbsent(resourceProvider.getClass(), providerClass -> buildInvocationPlans(resourceProvider));
+    }
+
+    /**
+     * Resolves the resource method bound to each supported verb for the given provider once, and records which
+     * argument slot receives the resource id and which one the resource itself. Entry dispatch afterwards is a
+     * map lookup followed by a direct method handle call.
+     */
+    private Map<Bundle.HTTPVerb, InvocationPlan> buildInvocationPlans(IResourceProvider resourceProvider) {
         Map<String, ResourceBinding> myResourceNameToBinding = this.getResourceBindingMap(resourceProvider);
         String resourceName = resourceProvider.getResourceType().getSimpleName();
-        Optional<BaseMethodBinding<?>> methodBinding = this.identifyResourceMethod(myResourceNameToBinding, resourceName, httpVerbToRequestTypeEnum.get(httpVerb));
-        if (!methodBinding.isPresent()) {
-            return Optional.empty();
+        Map<Bundle.HTTPVerb, InvocationPlan> plans = new EnumMap<>(Bundle.HTTPVerb.class);
+        for (Map.Entry<Bundle.HTTPVerb, RequestTypeEnum> verbEntry : httpVerbToRequestTypeEnum.entrySet()) {
+            Optional<BaseMethodBinding<?>> methodBinding = this.identifyResourceMethod(myResourceNameToBinding, resourceName, verbEntry.getValue());
+            methodBinding.ifPresent(binding -> plans.put(verbEntry.getKey(),
+                    InvocationPlan.of(binding.getMethod(), resourceProvider.getResourceType().getName())));
         }
-        MethodOutcome response;
-        BaseMethodBinding<?> binding = methodBinding.get();
-        List<Object> methodParams = new ArrayList<>();
+        log.debug("Prepared invocation plans for {} with verbs {}", resourceProvider.getClass(), plans.keySet());
+        return Collections.unmodifiableMap(plans);
+    }
+
+    private boolean supportsVerb(Bundle.HTTPVerb httpVerb) {
+        return httpVerbToRequestTypeEnum.get(httpVerb) != null;
+    }
+
+    private enum ArgumentSlot {
+        ID, RESOURCE, NONE
+    }
+
+    private static final class InvocationPlan {
+        private final MethodHandle methodHandle;
+        private final ArgumentSlot[] argumentSlots;
+        private final boolean hasResourceArguments;
+
+        private InvocationPlan(MethodHandle methodHandle, ArgumentSlot[] argumentSlots) {
+            this.methodHandle = methodHandle;
+            this.argumentSlots = argumentSlots;
+            this.hasResourceArguments = Arrays.stream(argumentSlots).anyMatch(slot -> slot != ArgumentSlot.NONE);
+        }
+
         /*
           method binding to handle - CreateMethodParam, UpdateMethodParam, DeleteMethodParam
           one way to check (binding instanceof UpdateMethodBinding || binding instanceof DeleteMethodBinding)
           However they don't provide public accessors to the params index to the method.
          */
-        Parameter[] parameters = binding.getMethod().getParameters();
-        for (Parameter parameter : parameters) {
-            if (parameter.getType().getName().equalsIgnoreCase("org.hl7.fhir.r4.model.IdType")) {
-                methodParams.add(resource.getIdElement());
-                continue;
+        static InvocationPlan of(Method method, String resourceClassName) {
+            Parameter[] parameters = method.getParameters();
+            ArgumentSlot[] argumentSlots = new ArgumentSlot[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                String parameterTypeName = parameters[i].getType().getName();
+                if (parameterTypeName.equalsIgnoreCase("org.hl7.fhir.r4.model.IdType")) {
+                    argumentSlots[i] = ArgumentSlot.ID;
+                } else if (parameterTypeName.equalsIgnoreCase(resourceClassName)) {
+                    argumentSlots[i] = ArgumentSlot.RESOURCE;
+                } else {
+                    argumentSlots[i] = ArgumentSlot.NONE;
+                }
             }
-            if (parameter.getType().getName().equalsIgnoreCase(resource.getClass().getName())) {
-                methodParams.add(resource);
+            try {
+                MethodHandle methodHandle = MethodHandles.publicLookup().unreflect(method)
+                        .asSpreader(Object[].class, parameters.length)
+                        .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+                return new InvocationPlan(methodHandle, argumentSlots);
+            } catch (IllegalAccessException e) {
+                throw new ConfigurationException(String.format("Can not access resource method [%s]", method), e);
             }
         }
-        if (methodParams.isEmpty()) {
-            throw new InvalidRequestException("Can not identify resource operations. No parameter identified");
-        }
-        Object invocationResult = binding.getMethod().invoke(resourceProvider, methodParams.toArray());
-        if (invocationResult instanceof IBaseOperationOutcome) {
-            response = new MethodOutcome();
-            response.setOperationOutcome((IBaseOperationOutcome) invocationResult);
-        } else {
-            response = (MethodOutcome) invocationResult;
-        }
-        return Optional.ofNullable(response);
-    }
 
-    private boolean supportsVerb(Bundle.HTTPVerb httpVerb) {
-        return httpVerbToRequestTypeEnum.get(httpVerb) != null;
+        MethodOutcome invoke(IResourceProvider resourceProvider, Resource resource) throws InvocationTargetException {
+            if (!hasResourceArguments) {
+                throw new InvalidRequestException("Can not identify resource operations. No parameter identified");
+            }
+            Object[] methodParams = new Object[argumentSlots.length];
+            for (int i = 0; i < argumentSlots.length; i++) {
+                if (argumentSlots[i] == ArgumentSlot.ID) {
+                    methodParams[i] = resource.getIdElement();
+                } else if (argumentSlots[i] == ArgumentSlot.RESOURCE) {
+                    methodParams[i] = resource;
+                }
+            }
+            Object invocationResult;
+            try {
+                invocationResult = (Object) methodHandle.invokeExact((Object) resourceProvider, methodParams);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+            if (invocationResult instanceof IBaseOperationOutcome) {
+                MethodOutcome response = new MethodOutcome();
+                response.setOperationOutcome((IBaseOperationOutcome) invocationResult);
+                return response;
+            }
+            return (MethodOutcome) invocationResult;
+        }
     }
 }
@@ -14,4 +14,11 @@ public interface AttributeTranslator<A, U> {
 	Extension toFhirResource(A attribute);
 	
 	Optional<U> getAttributeType(String extUrl);
+	
+	/**
+	 * @return the prefix of the extension urls this translator handles, or null if it may handle any url
+	 */
+	default String getExtensionUrlPrefix() {
+		return null;
+	}
 }
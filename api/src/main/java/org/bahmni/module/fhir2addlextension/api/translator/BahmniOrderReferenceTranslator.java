@@ -5,6 +5,7 @@ import org.openmrs.Order;
 import org.openmrs.module.fhir2.api.translators.OpenmrsFhirTranslator;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 
 /**
  * TODO: to be replaced in future by https://openmrs.atlassian.net/browse/FM2-675 pending PR merge
@@ -30,4 +31,13 @@ public interface BahmniOrderReferenceTranslator extends OpenmrsFhirTranslator<Or
 	 */
 	@Override
 	Order toOpenmrsType(@Nonnull Reference reference);
+	
+	/**
+	 * Looks up the ServiceRequests among the given references together, so that resolving the references one by one
+	 * for the rest of the current bundle operation does not look them up again
+	 * 
+	 * @param references the references about to be resolved
+	 */
+	default void prefetch(@Nonnull Collection<Reference> references) {
+	}
 }
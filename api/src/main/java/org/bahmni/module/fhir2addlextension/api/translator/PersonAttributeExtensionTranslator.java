@@ -12,5 +12,13 @@ public interface PersonAttributeExtensionTranslator {
 
 	PersonAttributeType resolveType(String extensionUrl, Map<String, PersonAttributeType> slugToTypeMap);
 
-	Map<String, PersonAttributeType> buildSlugToTypeMap();
+	/**
+	 * @return slugs of the names of the active person attribute types, shared until attribute types change
+	 */
+	Map<String, PersonAttributeType> getSlugToTypeMap();
+
+	/**
+	 * Drops the slug map, to be built again from the current attribute types on next use
+	 */
+	void clearSlugToTypeMap();
 }
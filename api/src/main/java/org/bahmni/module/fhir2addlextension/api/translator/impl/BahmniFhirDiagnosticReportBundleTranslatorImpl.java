@@ -1,6 +1,7 @@
 package org.bahmni.module.fhir2addlextension.api.translator.impl;
 
 import org.bahmni.module.fhir2addlextension.api.context.RequestContextHolder;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniObsDao;
 import org.bahmni.module.fhir2addlextension.api.model.FhirDiagnosticReportExt;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportBundleTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportTranslator;
@@ -27,12 +28,16 @@ public class BahmniFhirDiagnosticReportBundleTranslatorImpl implements BahmniFhi
 	
 	private final PractitionerReferenceTranslator<Provider> providerReferenceTranslator;
 	
+	private final BahmniObsDao obsDao;
+	
 	@Autowired
 	public BahmniFhirDiagnosticReportBundleTranslatorImpl(BahmniFhirDiagnosticReportTranslator diagnosticReportTranslator,
-	    ObservationTranslator observationTranslator, PractitionerReferenceTranslator<Provider> providerReferenceTranslator) {
+	    ObservationTranslator observationTranslator, PractitionerReferenceTranslator<Provider> providerReferenceTranslator,
+	    BahmniObsDao obsDao) {
 		this.diagnosticReportTranslator = diagnosticReportTranslator;
 		this.observationTranslator = observationTranslator;
 		this.providerReferenceTranslator = providerReferenceTranslator;
+		this.obsDao = obsDao;
 	}
 	
 	@Override
@@ -51,6 +56,7 @@ public class BahmniFhirDiagnosticReportBundleTranslatorImpl implements BahmniFhi
 		reportEntry.setResource(diagnosticReport);
 		reportBundle.addEntry(reportEntry);
 
+		obsDao.prefetchForTranslation(report.getResults());
 		report.getResults().forEach(obs -> {
 			if (obs.hasGroupMembers()) {
 				obs.getGroupMembers().forEach(member -> reportBundle.addEntry(createObservationEntry(member, fhirServerBase)));
@@ -107,6 +107,7 @@ public class BahmniFhirDiagnosticReportTranslatorImpl implements BahmniFhirDiagn
             existingObject.setConclusion(resource.getConclusion());
         }
         if (resource.hasBasedOn()) {
+            serviceRequestReferenceTranslator.prefetch(resource.getBasedOn());
             Set<Order> orders = new HashSet<>();
             resource.getBasedOn().forEach(reference -> {
                 Order aOrder = serviceRequestReferenceTranslator.toOpenmrsType(reference);
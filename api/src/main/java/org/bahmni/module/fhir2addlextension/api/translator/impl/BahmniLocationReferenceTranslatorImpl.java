@@ -0,0 +1,23 @@
+package org.bahmni.module.fhir2addlextension.api.translator.impl;
+
+import org.bahmni.module.fhir2addlextension.api.context.ReferenceResolutionContextHolder;
+import org.hl7.fhir.r4.model.Reference;
+import org.openmrs.Location;
+import org.openmrs.module.fhir2.api.translators.impl.LocationReferenceTranslatorImpl;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Resolves each Location reference once per bundle operation, see {@link ReferenceResolutionContextHolder}
+ */
+@Component
+@Primary
+public class BahmniLocationReferenceTranslatorImpl extends LocationReferenceTranslatorImpl {
+	
+	@Override
+	public Location toOpenmrsType(@Nonnull Reference reference) {
+		return ReferenceResolutionContextHolder.resolve("Location", reference, super::toOpenmrsType);
+	}
+}
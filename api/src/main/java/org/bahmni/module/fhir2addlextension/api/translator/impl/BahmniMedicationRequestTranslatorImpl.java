@@ -4,6 +4,7 @@ import lombok.AccessLevel;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirMedicationRequestDao;
 import org.bahmni.module.fhir2addlextension.api.utils.BahmniFhirUtils;
 import org.hl7.fhir.r4.model.Annotation;
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -23,6 +24,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -33,8 +39,30 @@ public class BahmniMedicationRequestTranslatorImpl extends MedicationRequestTran
 	@Setter(value = AccessLevel.PACKAGE)
 	private OrderService orderService;
 	
+	@Autowired
+	@Setter(value = AccessLevel.PACKAGE)
+	private BahmniFhirMedicationRequestDao medicationRequestDao;
+	
 	@Override
 	public MedicationRequest toFhirResource(@Nonnull DrugOrder drugOrder) {
+		return toFhirResource(drugOrder, Collections.emptyMap());
+	}
+	
+	/**
+	 * Translates a page of orders with the discontinuation orders of the stopped ones looked up together
+	 */
+	@Override
+	public List<MedicationRequest> toFhirResources(Collection<DrugOrder> drugOrders) {
+		Map<Integer, Order> discontinuationOrders = medicationRequestDao.getDiscontinuationOrders(drugOrders);
+		return drugOrders.stream().map(drugOrder -> toFhirResource(drugOrder, discontinuationOrders))
+		        .collect(Collectors.toList());
+	}
+	
+	/**
+	 * @param discontinuationOrders discontinuation orders looked up for stopped orders by their id, with null for the
+	 *            ones that have none. Those of other orders are looked up directly.
+	 */
+	private MedicationRequest toFhirResource(DrugOrder drugOrder, Map<Integer, Order> discontinuationOrders) {
 		MedicationRequest medicationRequest = super.toFhirResource(drugOrder);
 		
 		if (drugOrder.getDateStopped() != null) {
@@ -42,9 +70,11 @@ public class BahmniMedicationRequestTranslatorImpl extends MedicationRequestTran
 			medicationRequest.addExtension(new Extension(BahmniFhirConstants.FHIR_EXT_MEDICATION_REQUEST_DATE_STOPPED,
 			        new DateTimeType(drugOrder.getDateStopped())));
 			
-			// Stop reason and note live on the discontinuation order — look it up directly.
+			// Stop reason and note live on the discontinuation order
 			try {
-				Order discontinuationOrder = orderService.getDiscontinuationOrder(drugOrder);
+				Order discontinuationOrder = discontinuationOrders.containsKey(drugOrder.getOrderId())
+				        ? discontinuationOrders.get(drugOrder.getOrderId())
+				        : orderService.getDiscontinuationOrder(drugOrder);
 				if (discontinuationOrder != null) {
 					String reason = discontinuationOrder.getOrderReasonNonCoded();
 					if (reason != null && !reason.isEmpty()) {
@@ -3,6 +3,7 @@ package org.bahmni.module.fhir2addlextension.api.translator.impl;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.bahmni.module.fhir2addlextension.api.context.ReferenceResolutionContextHolder;
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirServiceRequestDao;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniOrderReferenceTranslator;
 import org.hl7.fhir.r4.model.Reference;
@@ -15,6 +16,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static lombok.AccessLevel.PROTECTED;
 import static org.openmrs.module.fhir2.api.translators.impl.ReferenceHandlingTranslator.getReferenceId;
@@ -24,6 +30,8 @@ import static org.openmrs.module.fhir2.api.translators.impl.ReferenceHandlingTra
 @Component
 public class BahmniOrderReferenceTranslatorImpl implements BahmniOrderReferenceTranslator {
 	
+	private static final String ORDER = "Order";
+	
 	@Getter(value = AccessLevel.PROTECTED)
 	private BahmniFhirServiceRequestDao<Order> serviceRequestDao;
 	
@@ -54,7 +62,40 @@ public class BahmniOrderReferenceTranslatorImpl implements BahmniOrderReferenceT
 	}
 	
 	@Override
-    public Order toOpenmrsType(@Nonnull Reference reference) {
+	public Order toOpenmrsType(@Nonnull Reference reference) {
+		return ReferenceResolutionContextHolder.resolve(ORDER, reference, this::resolveOrder);
+	}
+	
+	/**
+	 * Loads the ServiceRequests not yet resolved in the current bundle operation with one query. References that the
+	 * query does not answer, e.g. to voided orders, are resolved one by one as before.
+	 */
+	@Override
+	public void prefetch(@Nonnull Collection<Reference> references) {
+		if (!ReferenceResolutionContextHolder.isOpen()) {
+			return;
+		}
+		Map<String, List<Reference>> referencesByUuid = new HashMap<>();
+		for (Reference reference : references) {
+			if (reference == null || ReferenceResolutionContextHolder.isResolved(ORDER, reference)
+			        || !getReferenceType(reference).map(FhirConstants.SERVICE_REQUEST::equals).orElse(false)) {
+				continue;
+			}
+			getReferenceId(reference).ifPresent(
+			    uuid -> referencesByUuid.computeIfAbsent(uuid, key -> new ArrayList<>()).add(reference));
+		}
+		if (referencesByUuid.isEmpty()) {
+			return;
+		}
+		for (Order order : serviceRequestDao.get(referencesByUuid.keySet())) {
+			List<Reference> orderReferences = referencesByUuid.get(order.getUuid());
+			if (orderReferences != null) {
+				orderReferences.forEach(reference -> ReferenceResolutionContextHolder.remember(ORDER, reference, order));
+			}
+		}
+	}
+	
+    private Order resolveOrder(Reference reference) {
         if (reference == null) {
             return null;
         }
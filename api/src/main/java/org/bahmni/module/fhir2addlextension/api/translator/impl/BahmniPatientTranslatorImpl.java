@@ -121,7 +121,7 @@ public class BahmniPatientTranslatorImpl extends PatientTranslatorImpl {
 	}
 
 	void processPersonAttributeExtensions(org.openmrs.Patient openmrsPatient, Patient fhirPatient) {
-		Map<String, PersonAttributeType> slugToTypeMap = personAttributeTranslator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> slugToTypeMap = personAttributeTranslator.getSlugToTypeMap();
 
 		for (Extension ext : fhirPatient.getExtension()) {
 			String url = ext.getUrl();
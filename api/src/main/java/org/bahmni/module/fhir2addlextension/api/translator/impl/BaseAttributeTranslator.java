@@ -13,7 +13,9 @@ import org.openmrs.attribute.BaseAttribute;
 import org.openmrs.attribute.BaseAttributeType;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -22,7 +24,10 @@ public abstract class BaseAttributeTranslator<A extends BaseAttribute<U, ?>, U e
 	
 	private static final String DATATYPE_BOOLEAN = "org.openmrs.customdatatype.datatype.BooleanDatatype";
 	
-	protected abstract String getExtensionUrlPrefix();
+	private volatile AttributeTypeIndex<U> attributeTypeIndex;
+	
+	@Override
+	public abstract String getExtensionUrlPrefix();
 	
 	protected abstract ResourceType getResourceType();
 	
@@ -106,9 +111,39 @@ public abstract class BaseAttributeTranslator<A extends BaseAttribute<U, ?>, U e
 			return Optional.empty();
 		}
 
-		List<U> definedAttributeTypes = getActiveAttributeTypes();
-		return definedAttributeTypes.stream()
-				.filter(attrType -> ModuleUtils.toSlugCase(attrType.getName()).equals(extAttributeName))
-				.findFirst();
+		return Optional.ofNullable(getAttributeTypeIndex().attributeTypesBySlug.get(extAttributeName));
+	}
+	
+	/**
+	 * The active attribute types come from a cached list, so the slugs are only worked out again when the list is
+	 * reloaded, which is when attribute types may have changed.
+	 */
+	private AttributeTypeIndex<U> getAttributeTypeIndex() {
+		List<U> activeAttributeTypes = getActiveAttributeTypes();
+		AttributeTypeIndex<U> index = attributeTypeIndex;
+		if (index == null || index.attributeTypes != activeAttributeTypes) {
+			index = new AttributeTypeIndex<>(activeAttributeTypes);
+			attributeTypeIndex = index;
+		}
+		return index;
+	}
+	
+	private static class AttributeTypeIndex<T extends BaseAttributeType<?>> {
+		
+		private final List<T> attributeTypes;
+		
+		private final Map<String, T> attributeTypesBySlug;
+		
+		private AttributeTypeIndex(List<T> attributeTypes) {
+			Map<String, T> attributeTypesBySlug = new LinkedHashMap<>();
+			for (T attributeType : attributeTypes) {
+				String slug = ModuleUtils.toSlugCase(attributeType.getName());
+				if (slug != null) {
+					attributeTypesBySlug.putIfAbsent(slug, attributeType);
+				}
+			}
+			this.attributeTypes = attributeTypes;
+			this.attributeTypesBySlug = Collections.unmodifiableMap(attributeTypesBySlug);
+		}
 	}
 }
@@ -4,19 +4,34 @@ import org.bahmni.module.fhir2addlextension.api.translator.AttributeTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.AttributeTranslatorRegistry;
 import org.hl7.fhir.r4.model.Extension;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Extension urls are an url prefix followed by the slug of an attribute type name, and slugs hold neither '/' nor
+ * '#'. So an url and the prefix it starts with share everything up to their last '/' or '#', which is used to look up
+ * the translators that may handle an url without asking every registered translator.
+ */
 public abstract class BaseAttributeTranslatorRegistry<A, U, T extends AttributeTranslator<A, U>>
 		implements AttributeTranslatorRegistry<A, U, T> {
 
-	private final Set<T> attributeTranslators = new HashSet<>();
+	private final Set<T> attributeTranslators = new LinkedHashSet<>();
 
 	private final T defaultAttributeTranslator;
 
+	private volatile Map<String, List<T>> translatorsByUrlBase;
+
+	private volatile List<T> translatorsForAnyUrl;
+
 	protected BaseAttributeTranslatorRegistry(T defaultAttributeTranslator) {
 		this.defaultAttributeTranslator = defaultAttributeTranslator;
+		buildDispatchTable();
 	}
 
 	@Override
@@ -26,16 +41,13 @@ public abstract class BaseAttributeTranslatorRegistry<A, U, T extends AttributeT
 
 	@Override
 	public Optional<T> getAttributeTranslator(String extensionUrl) {
-		return Optional.ofNullable(attributeTranslators.stream()
+		if (extensionUrl == null) {
+			return Optional.empty();
+		}
+		List<T> candidates = translatorsByUrlBase.getOrDefault(getUrlBase(extensionUrl), translatorsForAnyUrl);
+		return candidates.stream()
 				.filter(translator -> translator.getAttributeType(extensionUrl).isPresent())
-				.findFirst()
-				.orElseGet(() -> {
-					if (defaultAttributeTranslator.getAttributeType(extensionUrl).isPresent()) {
-						return defaultAttributeTranslator;
-					} else {
-						return null;
-					}
-				}));
+				.findFirst();
 	}
 
 	@Override
@@ -53,7 +65,36 @@ public abstract class BaseAttributeTranslatorRegistry<A, U, T extends AttributeT
 	}
 
 	@Override
-	public void registerAttributeTranslator(T translator) {
+	public synchronized void registerAttributeTranslator(T translator) {
 		attributeTranslators.add(translator);
+		buildDispatchTable();
+	}
+
+	/**
+	 * Lists, for each url base, the registered translators with a matching prefix and the ones without a prefix,
+	 * followed by the default translator, so registered translators keep precedence over the default one.
+	 */
+	private void buildDispatchTable() {
+		List<T> translators = new ArrayList<>(attributeTranslators);
+		translators.add(defaultAttributeTranslator);
+
+		List<T> forAnyUrl = new ArrayList<>();
+		Map<String, List<T>> byUrlBase = new HashMap<>();
+		for (T translator : translators) {
+			String urlPrefix = translator.getExtensionUrlPrefix();
+			if (urlPrefix == null) {
+				forAnyUrl.add(translator);
+				byUrlBase.values().forEach(candidates -> candidates.add(translator));
+			} else {
+				byUrlBase.computeIfAbsent(getUrlBase(urlPrefix), urlBase -> new ArrayList<>(forAnyUrl)).add(translator);
+			}
+		}
+		byUrlBase.replaceAll((urlBase, candidates) -> Collections.unmodifiableList(candidates));
+		translatorsByUrlBase = byUrlBase;
+		translatorsForAnyUrl = Collections.unmodifiableList(forAnyUrl);
+	}
+
+	private static String getUrlBase(String url) {
+		return url.substring(0, Math.max(url.lastIndexOf('/'), url.lastIndexOf('#')) + 1);
 	}
 }
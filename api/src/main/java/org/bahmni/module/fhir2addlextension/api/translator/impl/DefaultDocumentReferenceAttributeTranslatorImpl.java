@@ -24,7 +24,7 @@ public class DefaultDocumentReferenceAttributeTranslatorImpl extends BaseAttribu
 	}
 	
 	@Override
-	protected String getExtensionUrlPrefix() {
+	public String getExtensionUrlPrefix() {
 		return DOC_REF_ATTR_EXT_URL;
 	}
 	
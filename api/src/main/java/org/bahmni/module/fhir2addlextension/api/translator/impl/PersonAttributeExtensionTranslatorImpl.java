@@ -14,10 +14,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Component
 public class PersonAttributeExtensionTranslatorImpl implements org.bahmni.module.fhir2addlextension.api.translator.PersonAttributeExtensionTranslator {
@@ -28,6 +28,10 @@ public class PersonAttributeExtensionTranslatorImpl implements org.bahmni.module
 
 	private final PersonService personService;
 
+	private volatile SlugIndex slugIndex;
+
+	private long slugIndexGeneration = 0;
+
 	@Autowired
 	public PersonAttributeExtensionTranslatorImpl(@Qualifier("personService") PersonService personService) {
 		this.personService = personService;
@@ -44,7 +48,10 @@ public class PersonAttributeExtensionTranslatorImpl implements org.bahmni.module
 			return null;
 		}
 
-		String slug = ModuleUtils.toSlugCase(name);
+		String slug = getSlugIndex().slugsByTypeUuid.get(attribute.getAttributeType().getUuid());
+		if (slug == null) {
+			slug = ModuleUtils.toSlugCase(name);
+		}
 		Extension ext = new Extension(BahmniFhirConstants.FHIR_EXT_PATIENT_ATTRIBUTE_PREFIX + slug);
 
 		if (BOOLEAN_FORMAT.equals(attribute.getAttributeType().getFormat())) {
@@ -69,18 +76,58 @@ public class PersonAttributeExtensionTranslatorImpl implements org.bahmni.module
 		return slugToTypeMap.get(slug);
 	}
 
-	public Map<String, PersonAttributeType> buildSlugToTypeMap() {
-		List<PersonAttributeType> types = personService.getAllPersonAttributeTypes(false);
-		return types.stream()
-				.filter(t -> t.getName() != null)
-				.collect(Collectors.toMap(
-						t -> ModuleUtils.toSlugCase(t.getName()),
-						Function.identity(),
-						(existing, duplicate) -> {
-							log.warn("Duplicate slug for attribute types '{}' and '{}'",
-									existing.getName(), duplicate.getName());
-							return existing;
-						}
-				));
+	public Map<String, PersonAttributeType> getSlugToTypeMap() {
+		return getSlugIndex().typesBySlug;
+	}
+
+	public synchronized void clearSlugToTypeMap() {
+		slugIndexGeneration++;
+		slugIndex = null;
+	}
+
+	private SlugIndex getSlugIndex() {
+		SlugIndex index = slugIndex;
+		if (index != null) {
+			return index;
+		}
+		long generation;
+		synchronized (this) {
+			generation = slugIndexGeneration;
+		}
+		index = new SlugIndex(personService.getAllPersonAttributeTypes(false));
+		synchronized (this) {
+			// a change to attribute types while loading them leaves the index to be built again on next use
+			if (generation == slugIndexGeneration) {
+				slugIndex = index;
+			}
+		}
+		return index;
+	}
+
+	private static class SlugIndex {
+
+		private final Map<String, PersonAttributeType> typesBySlug;
+
+		private final Map<String, String> slugsByTypeUuid;
+
+		private SlugIndex(List<PersonAttributeType> types) {
+			Map<String, PersonAttributeType> typesBySlug = new HashMap<>();
+			Map<String, String> slugsByTypeUuid = new HashMap<>();
+			for (PersonAttributeType type : types) {
+				if (type.getName() == null) {
+					continue;
+				}
+				String slug = ModuleUtils.toSlugCase(type.getName());
+				PersonAttributeType existing = typesBySlug.putIfAbsent(slug, type);
+				if (existing != null) {
+					log.warn("Duplicate slug for attribute types '{}' and '{}'", existing.getName(), type.getName());
+				}
+				if (type.getUuid() != null) {
+					slugsByTypeUuid.put(type.getUuid(), slug);
+				}
+			}
+			this.typesBySlug = Collections.unmodifiableMap(typesBySlug);
+			this.slugsByTypeUuid = Collections.unmodifiableMap(slugsByTypeUuid);
+		}
 	}
 }
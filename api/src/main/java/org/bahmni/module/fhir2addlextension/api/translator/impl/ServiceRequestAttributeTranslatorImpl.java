@@ -22,7 +22,7 @@ public class ServiceRequestAttributeTranslatorImpl extends BaseAttributeTranslat
 	}
 	
 	@Override
-	protected String getExtensionUrlPrefix() {
+	public String getExtensionUrlPrefix() {
 		return BahmniFhirConstants.FHIR_EXT_SERVICE_REQUEST_ATTRIBUTE_PREFIX;
 	}
 	
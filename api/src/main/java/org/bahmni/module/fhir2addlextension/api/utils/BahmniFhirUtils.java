@@ -3,7 +3,6 @@ package org.bahmni.module.fhir2addlextension.api.utils;
 import org.hl7.fhir.r4.model.Bundle;
 import org.openmrs.module.fhir2.api.util.FhirUtils;
 
-import java.util.AbstractMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -17,19 +16,6 @@ public class BahmniFhirUtils {
 				.collect(Collectors.toList());
 	}
 	
-	public static <T> Optional<T> findResourceInBundle(Bundle bundle, String idParam, Class<T> targetClass) {
-        return bundle.getEntry().stream()
-				.map(entry -> new AbstractMap.SimpleEntry<>(entry.getFullUrl(), entry.getResource()))
-                .filter(resourceEntry -> {
-					String idPart = Optional.ofNullable(resourceEntry.getValue().getIdElement().getIdPart()).orElse(resourceEntry.getKey());
-					String extractIdPart = extractId(idPart);
-                    return idParam.equals(extractIdPart) && targetClass.isInstance(resourceEntry.getValue());
-                })
-				.map(AbstractMap.SimpleEntry::getValue)
-                .map(targetClass::cast)
-                .findFirst();
-    }
-	
 	public static Optional<String> referenceToId(String reference) {
 		if (reference.startsWith("urn:uuid:")) {
 			String idPart = reference.substring(reference.lastIndexOf(":") + 1);
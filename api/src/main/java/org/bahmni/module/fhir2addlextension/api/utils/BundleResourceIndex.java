@@ -0,0 +1,92 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only index over the entries of a bundle, built once so that resources and entries can be looked up by id
+ * without scanning the bundle. An entry can be found by the id part of its resource id, by its fullUrl, and by the
+ * id part of its fullUrl (e.g. "123" for "urn:uuid:123" or "Observation/123"). Where several entries match, the
+ * first one in bundle order wins.
+ * <p>
+ * The index does not follow changes made to the bundle after it was built.
+ */
+public class BundleResourceIndex {
+
+	private final Map<String, List<Bundle.BundleEntryComponent>> entriesById = new HashMap<>();
+
+	private final Map<String, Bundle.BundleEntryComponent> entriesByFullUrl = new HashMap<>();
+
+	private BundleResourceIndex(List<Bundle.BundleEntryComponent> entries) {
+		for (Bundle.BundleEntryComponent entry : entries) {
+			if (!entry.hasResource()) {
+				continue;
+			}
+			String resourceIdPart = entry.getResource().getIdElement().getIdPart();
+			if (resourceIdPart != null) {
+				indexById(BahmniFhirUtils.extractId(resourceIdPart), entry);
+			}
+			if (entry.hasFullUrl()) {
+				entriesByFullUrl.putIfAbsent(entry.getFullUrl(), entry);
+				indexById(BahmniFhirUtils.extractId(entry.getFullUrl()), entry);
+			}
+		}
+	}
+
+	public static BundleResourceIndex of(Bundle bundle) {
+		return new BundleResourceIndex(bundle.getEntry());
+	}
+
+	public static BundleResourceIndex of(List<Bundle.BundleEntryComponent> entries) {
+		return new BundleResourceIndex(entries);
+	}
+
+	/**
+	 * @param id resource id, or a reference from which the id is extracted
+	 * @param targetClass type of the resource to find
+	 * @return the first resource of the given type with the id
+	 */
+	public <T> Optional<T> findResource(String id, Class<T> targetClass) {
+		for (Bundle.BundleEntryComponent entry : getEntries(id)) {
+			if (targetClass.isInstance(entry.getResource())) {
+				return Optional.of(targetClass.cast(entry.getResource()));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * @return the entry with exactly the given fullUrl
+	 */
+	public Optional<Bundle.BundleEntryComponent> findEntryByFullUrl(String fullUrl) {
+		return Optional.ofNullable(entriesByFullUrl.get(fullUrl));
+	}
+
+	private List<Bundle.BundleEntryComponent> getEntries(String id) {
+		if (id == null) {
+			return Collections.emptyList();
+		}
+		String idPart = BahmniFhirUtils.extractId(id);
+		if (idPart == null) {
+			return Collections.emptyList();
+		}
+		return entriesById.getOrDefault(idPart, Collections.emptyList());
+	}
+
+	private void indexById(String idPart, Bundle.BundleEntryComponent entry) {
+		if (idPart == null) {
+			return;
+		}
+		List<Bundle.BundleEntryComponent> entries = entriesById.computeIfAbsent(idPart, key -> new ArrayList<>(1));
+		if (!entries.contains(entry)) {
+			entries.add(entry);
+		}
+	}
+}
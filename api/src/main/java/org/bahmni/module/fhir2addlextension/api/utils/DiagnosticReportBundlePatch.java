@@ -0,0 +1,74 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Readdresses a JSON Patch for a DiagnosticReport bundle to the report alone. The report is the first entry of the
+ * bundle, so a patch whose operations all have paths under {@code /entry/0/resource/} changes nothing but the report
+ * and can be applied to it without building the result observations of the bundle.
+ */
+public class DiagnosticReportBundlePatch {
+
+	private static final String REPORT_PATH = "/entry/0/resource";
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private DiagnosticReportBundlePatch() {
+	}
+
+	/**
+	 * @param bundlePatchBody JSON Patch (RFC 6902) for the bundle
+	 * @return the same patch with its paths relative to the report, or empty if it is not a JSON Patch or any of its
+	 *         operations addresses something other than the report
+	 */
+	public static Optional<String> toReportPatch(String bundlePatchBody) {
+		JsonNode patch;
+		try {
+			patch = OBJECT_MAPPER.readTree(bundlePatchBody);
+		}
+		catch (IOException e) {
+			return Optional.empty();
+		}
+		if (patch == null || !patch.isArray()) {
+			return Optional.empty();
+		}
+		ArrayNode reportPatch = OBJECT_MAPPER.createArrayNode();
+		for (JsonNode operation : patch) {
+			if (!operation.isObject()) {
+				return Optional.empty();
+			}
+			ObjectNode reportOperation = ((ObjectNode) operation).deepCopy();
+			Optional<String> path = toReportPointer(operation.get("path"));
+			if (!path.isPresent()) {
+				return Optional.empty();
+			}
+			reportOperation.put("path", path.get());
+			if (operation.has("from")) {
+				Optional<String> from = toReportPointer(operation.get("from"));
+				if (!from.isPresent()) {
+					return Optional.empty();
+				}
+				reportOperation.put("from", from.get());
+			}
+			reportPatch.add(reportOperation);
+		}
+		return Optional.of(reportPatch.toString());
+	}
+
+	private static Optional<String> toReportPointer(JsonNode pointer) {
+		if (pointer == null || !pointer.isTextual()) {
+			return Optional.empty();
+		}
+		String path = pointer.asText();
+		if (!path.startsWith(REPORT_PATH + "/")) {
+			return Optional.empty();
+		}
+		return Optional.of(path.substring(REPORT_PATH.length()));
+	}
+}
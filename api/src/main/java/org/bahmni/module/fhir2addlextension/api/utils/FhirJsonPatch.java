@@ -0,0 +1,390 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeChildDirectResource;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseBooleanDatatype;
+import org.hl7.fhir.instance.model.api.IBaseDecimalDatatype;
+import org.hl7.fhir.instance.model.api.IBaseIntegerDatatype;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.hl7.fhir.r4.model.Resource;
+import org.openmrs.module.fhir2.api.util.JsonPatchUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies JSON Patch (RFC 6902) operations to a copy of a FHIR resource through HAPI's element model, instead of
+ * encoding the resource to JSON, patching the JSON tree and parsing the result as {@link JsonPatchUtils} does. Paths
+ * are resolved with the child definitions of the resource, and add, replace, remove and test operations are applied
+ * to the elements in place. Adding to a list that is empty, and so missing from the JSON of the resource, works as
+ * it would if the list were present.
+ * <p>
+ * Patches it cannot apply this way are left to {@link JsonPatchUtils}: move and copy operations, operations on whole
+ * lists, extensions, contained and other nested resources, ids, values that do not fit the element, and patches that
+ * fail, so that their errors are reported as before.
+ */
+@Slf4j
+public class FhirJsonPatch {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+	        .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+	private static final Set<String> UNSUPPORTED_NAMES = new HashSet<>(
+	        Arrays.asList("id", "resourceType", "extension", "modifierExtension", "contained"));
+
+	private static final int APPEND = -1;
+
+	private FhirJsonPatch() {
+	}
+
+	/**
+	 * @return the patched copy of the resource, or empty if the patch has to be applied through
+	 *         {@link JsonPatchUtils}. The given resource is not changed.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends IBaseResource> Optional<T> applyInModel(FhirContext fhirContext, T resource,
+	        String patchBody) {
+		if (!(resource instanceof Resource)) {
+			return Optional.empty();
+		}
+		try {
+			JsonNode operations = OBJECT_MAPPER.readTree(patchBody);
+			if (operations == null || !operations.isArray()) {
+				return Optional.empty();
+			}
+			T patched = (T) ((Resource) resource).copy();
+			for (JsonNode operation : operations) {
+				applyOperation(fhirContext, patched, operation);
+			}
+			return Optional.of(patched);
+		}
+		catch (IOException | UnsupportedPatchException | RuntimeException e) {
+			log.debug("Applying JSON patch through JsonPatchUtils: {}", e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static void applyOperation(FhirContext fhirContext, IBaseResource resource, JsonNode operation)
+	        throws UnsupportedPatchException {
+		String op = textOf(operation, "op");
+		Location location = resolve(fhirContext, resource, textOf(operation, "path"));
+		switch (op) {
+			case "add":
+				add(location, newValue(fhirContext, location, valueOf(operation)));
+				break;
+			case "replace":
+				replace(location, newValue(fhirContext, location, valueOf(operation)));
+				break;
+			case "remove":
+				remove(location);
+				break;
+			case "test":
+				test(location, valueOf(operation));
+				break;
+			default:
+				throw new UnsupportedPatchException("operation " + op);
+		}
+	}
+
+	/**
+	 * Resolves a JSON Pointer to the child of the element it points into, and the position in the child's values
+	 */
+	private static Location resolve(FhirContext fhirContext, IBaseResource resource, String path)
+	        throws UnsupportedPatchException {
+		if (!path.startsWith("/")) {
+			throw new UnsupportedPatchException("path " + path);
+		}
+		String[] segments = path.substring(1).split("/", -1);
+		IBase element = resource;
+		BaseRuntimeElementCompositeDefinition<?> definition = fhirContext.getResourceDefinition(resource);
+		int segment = 0;
+		while (true) {
+			String name = decode(segments[segment]);
+			if (UNSUPPORTED_NAMES.contains(name) || name.startsWith("_")) {
+				throw new UnsupportedPatchException("element " + name);
+			}
+			BaseRuntimeChildDefinition child = definition.getChildByName(name);
+			if (child == null) {
+				throw new UnsupportedPatchException("element " + name);
+			}
+			Integer index = null;
+			int next = segment + 1;
+			if (child.getMax() != 1) {
+				if (next == segments.length) {
+					throw new UnsupportedPatchException("whole list " + name);
+				}
+				index = toIndex(segments[next]);
+				next++;
+			}
+			Location location = new Location(element, child, name, index);
+			if (next == segments.length) {
+				return location;
+			}
+			IBase value = location.getValue();
+			if (value == null) {
+				throw new UnsupportedPatchException("missing parent of " + path);
+			}
+			definition = getCompositeDefinition(fhirContext, location, value);
+			element = value;
+			segment = next;
+		}
+	}
+
+	private static BaseRuntimeElementCompositeDefinition<?> getCompositeDefinition(FhirContext fhirContext,
+	        Location location, IBase value) throws UnsupportedPatchException {
+		if (value instanceof IBaseResource) {
+			return fhirContext.getResourceDefinition((IBaseResource) value);
+		}
+		BaseRuntimeElementDefinition<?> definition = location.child.getChildByName(location.name);
+		if (!(definition instanceof BaseRuntimeElementCompositeDefinition)) {
+			throw new UnsupportedPatchException("path into " + location.name);
+		}
+		return (BaseRuntimeElementCompositeDefinition<?>) definition;
+	}
+
+	private static void add(Location location, IBase value) throws UnsupportedPatchException {
+		if (location.index == null) {
+			location.child.getMutator().setValue(location.parent, value);
+			return;
+		}
+		List<IBase> values = location.getValues();
+		int index = location.index == APPEND ? values.size() : location.index;
+		if (index > values.size()) {
+			throw new UnsupportedPatchException("index " + index + " of " + location.name);
+		}
+		values.add(index, value);
+		location.setValues(values);
+	}
+
+	private static void replace(Location location, IBase value) throws UnsupportedPatchException {
+		location.requireValue();
+		if (location.index == null) {
+			location.child.getMutator().setValue(location.parent, value);
+			return;
+		}
+		List<IBase> values = location.getValues();
+		values.set(location.index, value);
+		location.setValues(values);
+	}
+
+	private static void remove(Location location) throws UnsupportedPatchException {
+		location.requireValue();
+		if (location.index == null) {
+			location.child.getMutator().setValue(location.parent, null);
+			return;
+		}
+		List<IBase> values = location.getValues();
+		values.remove(location.index.intValue());
+		location.setValues(values);
+	}
+
+	private static void test(Location location, JsonNode expected) throws UnsupportedPatchException {
+		IBase value = location.requireValue();
+		if (!(value instanceof IPrimitiveType) || !fitsPrimitive((IPrimitiveType<?>) value, expected)) {
+			throw new UnsupportedPatchException("test of " + location.name);
+		}
+		String actual = ((IPrimitiveType<?>) value).getValueAsString();
+		boolean matches = expected.isNumber()
+		        ? actual != null && new BigDecimal(actual).compareTo(expected.decimalValue()) == 0
+		        : expected.asText().equals(actual);
+		if (!matches) {
+			throw new UnsupportedPatchException("failed test of " + location.name);
+		}
+	}
+
+	/**
+	 * Creates the element for a value of the patch, from the child definition it is set on
+	 */
+	private static IBase newValue(FhirContext fhirContext, Location location, JsonNode value)
+	        throws UnsupportedPatchException {
+		return newValue(fhirContext, location.child, location.name, value);
+	}
+
+	private static IBase newValue(FhirContext fhirContext, BaseRuntimeChildDefinition child, String name, JsonNode value)
+	        throws UnsupportedPatchException {
+		BaseRuntimeElementDefinition<?> definition = child.getChildByName(name);
+		if (child instanceof RuntimeChildDirectResource || definition == null || value.isNull()) {
+			throw new UnsupportedPatchException("value of " + name);
+		}
+		IBase element = definition.newInstance(child.getInstanceConstructorArguments());
+		if (element instanceof IPrimitiveType) {
+			setPrimitiveValue((IPrimitiveType<?>) element, name, value);
+			return element;
+		}
+		if (!(definition instanceof BaseRuntimeElementCompositeDefinition) || !value.isObject()) {
+			throw new UnsupportedPatchException("value of " + name);
+		}
+		BaseRuntimeElementCompositeDefinition<?> compositeDefinition = (BaseRuntimeElementCompositeDefinition<?>) definition;
+		Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			String fieldName = field.getKey();
+			BaseRuntimeChildDefinition fieldChild = compositeDefinition.getChildByName(fieldName);
+			if (UNSUPPORTED_NAMES.contains(fieldName) || fieldName.startsWith("_") || fieldChild == null
+			        || field.getValue().isArray() == (fieldChild.getMax() == 1)) {
+				throw new UnsupportedPatchException("value of " + name + "." + fieldName);
+			}
+			if (field.getValue().isArray()) {
+				for (JsonNode item : field.getValue()) {
+					fieldChild.getMutator().addValue(element, newValue(fhirContext, fieldChild, fieldName, item));
+				}
+			} else {
+				fieldChild.getMutator().setValue(element, newValue(fhirContext, fieldChild, fieldName, field.getValue()));
+			}
+		}
+		return element;
+	}
+
+	private static void setPrimitiveValue(IPrimitiveType<?> element, String name, JsonNode value)
+	        throws UnsupportedPatchException {
+		if (!fitsPrimitive(element, value)) {
+			throw new UnsupportedPatchException("value of " + name);
+		}
+		element.setValueAsString(value.isNumber() ? value.decimalValue().toPlainString() : value.asText());
+	}
+
+	/**
+	 * @return whether the JSON value is of the kind that JSON has for the primitive: boolean, number or string
+	 */
+	private static boolean fitsPrimitive(IPrimitiveType<?> element, JsonNode value) {
+		boolean isBoolean = element instanceof IBaseBooleanDatatype;
+		boolean isNumber = element instanceof IBaseDecimalDatatype || element instanceof IBaseIntegerDatatype;
+		return value.isValueNode() && !value.isNull() && value.isBoolean() == isBoolean && value.isNumber() == isNumber;
+	}
+
+	private static int toIndex(String segment) throws UnsupportedPatchException {
+		if ("-".equals(segment)) {
+			return APPEND;
+		}
+		if (!segment.matches("0|[1-9][0-9]{0,8}")) {
+			throw new UnsupportedPatchException("index " + segment);
+		}
+		return Integer.parseInt(segment);
+	}
+
+	private static String decode(String segment) {
+		return segment.replace("~1", "/").replace("~0", "~");
+	}
+
+	private static String textOf(JsonNode operation, String field) throws UnsupportedPatchException {
+		JsonNode value = operation.get(field);
+		if (value == null || !value.isTextual()) {
+			throw new UnsupportedPatchException("operation without " + field);
+		}
+		return value.asText();
+	}
+
+	private static JsonNode valueOf(JsonNode operation) throws UnsupportedPatchException {
+		JsonNode value = operation.get("value");
+		if (value == null) {
+			throw new UnsupportedPatchException("operation without value");
+		}
+		return value;
+	}
+
+	/**
+	 * A position in the values of a child of an element: the single value of the child, or the value at an index of
+	 * its list
+	 */
+	private static class Location {
+
+		private final IBase parent;
+
+		private final BaseRuntimeChildDefinition child;
+
+		private final String name;
+
+		private final Integer index;
+
+		private Location(IBase parent, BaseRuntimeChildDefinition child, String name, Integer index) {
+			this.parent = parent;
+			this.child = child;
+			this.name = name;
+			this.index = index;
+		}
+
+		/**
+		 * @return the values of the child, which JSON would have in the same order, as empty elements are left out of
+		 *         JSON
+		 */
+		private List<IBase> getValues() throws UnsupportedPatchException {
+			List<IBase> values = new ArrayList<>(child.getAccessor().getValues(parent));
+			for (IBase value : values) {
+				if (value == null || value.isEmpty()) {
+					throw new UnsupportedPatchException("empty element in " + name);
+				}
+			}
+			return values;
+		}
+
+		private void setValues(List<IBase> values) throws UnsupportedPatchException {
+			if (values.isEmpty()) {
+				child.getAccessor().getValues(parent).clear();
+				if (!child.getAccessor().getValues(parent).isEmpty()) {
+					throw new UnsupportedPatchException("clearing " + name);
+				}
+				return;
+			}
+			child.getMutator().setValue(parent, values.get(0));
+			for (IBase value : values.subList(1, values.size())) {
+				child.getMutator().addValue(parent, value);
+			}
+		}
+
+		/**
+		 * @return the value at this location, or null if there is none, as for a value that JSON would leave out
+		 */
+		private IBase getValue() throws UnsupportedPatchException {
+			IBase value;
+			if (index == null) {
+				List<IBase> values = child.getAccessor().getValues(parent);
+				value = values.isEmpty() ? null : values.get(0);
+			} else {
+				List<IBase> values = getValues();
+				value = index == APPEND || index >= values.size() ? null : values.get(index);
+			}
+			if (value == null || value.isEmpty()) {
+				return null;
+			}
+			BaseRuntimeElementDefinition<?> definition = child instanceof RuntimeChildDirectResource ? null
+			        : child.getChildByName(name);
+			if (definition != null && !definition.getImplementingClass().isInstance(value)) {
+				// a choice element holding a value of another type than the one named
+				return null;
+			}
+			return value;
+		}
+
+		private IBase requireValue() throws UnsupportedPatchException {
+			IBase value = getValue();
+			if (value == null) {
+				throw new UnsupportedPatchException("missing " + name);
+			}
+			return value;
+		}
+	}
+
+	private static class UnsupportedPatchException extends Exception {
+
+		private UnsupportedPatchException(String message) {
+			super(message);
+		}
+	}
+}
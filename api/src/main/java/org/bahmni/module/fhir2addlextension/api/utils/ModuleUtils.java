@@ -1,6 +1,8 @@
 package org.bahmni.module.fhir2addlextension.api.utils;
 
 import org.openmrs.Location;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.validation.constraints.NotNull;
 import java.time.ZoneId;
@@ -61,4 +63,25 @@ public class ModuleUtils {
 		ZonedDateTime dt2 = d2.toInstant().atZone(ZoneId.systemDefault()).truncatedTo(granularity);
 		return dt1.compareTo(dt2);
 	}
+	
+	/**
+	 * Runs the action once the current transaction has committed, so caches derived from the data it
+	 * changes are never refreshed from rows other transactions cannot see yet. Runs the action right
+	 * away when no transaction is active.
+	 * 
+	 * @param action the action to run after commit
+	 */
+	public static void runAfterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
 }
@@ -7,4 +7,10 @@ public interface EncounterBundleValidator {
 	void validateBundleType(Bundle bundle);
 	
 	void validateBundleEntries(Bundle bundle);
+	
+	void validateBundleType(Bundle.BundleType bundleType);
+	
+	void validateBundleEntry(Bundle.BundleEntryComponent entryComponent);
+	
+	void validateEncounterEntryCount(int encounterEntryCount);
 }
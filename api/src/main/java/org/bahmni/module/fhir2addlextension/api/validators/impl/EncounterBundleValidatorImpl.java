@@ -12,7 +12,12 @@ public class EncounterBundleValidatorImpl implements EncounterBundleValidator {
 	
 	@Override
 	public void validateBundleType(Bundle bundle) {
-		if (bundle.getType() != Bundle.BundleType.TRANSACTION) {
+		validateBundleType(bundle.getType());
+	}
+	
+	@Override
+	public void validateBundleType(Bundle.BundleType bundleType) {
+		if (bundleType != Bundle.BundleType.TRANSACTION) {
 			throw new InvalidRequestException("Bundle type must be transaction");
 		}
 	}
@@ -26,13 +31,19 @@ public class EncounterBundleValidatorImpl implements EncounterBundleValidator {
 				encounterEntryCount++;
 			}
 		}
+		validateEncounterEntryCount(encounterEntryCount);
+	}
+	
+	@Override
+	public void validateEncounterEntryCount(int encounterEntryCount) {
 		if (encounterEntryCount != 1) {
 			throw new InvalidRequestException("Encounter bundle should contain only one Encounter entry. Found "
 			        + encounterEntryCount + " instead.");
 		}
 	}
 	
-	private void validateBundleEntry(Bundle.BundleEntryComponent entryComponent) throws InvalidRequestException {
+	@Override
+	public void validateBundleEntry(Bundle.BundleEntryComponent entryComponent) throws InvalidRequestException {
 		boolean hasMandatoryFields = entryComponent.hasResource() && entryComponent.hasRequest()
 		        && entryComponent.hasFullUrl();
 		if (!hasMandatoryFields) {
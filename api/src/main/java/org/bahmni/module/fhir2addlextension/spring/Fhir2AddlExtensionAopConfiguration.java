@@ -4,7 +4,12 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
 
+import org.bahmni.module.fhir2addlextension.advice.DrugNameIndexUpdateAdvice;
 import org.bahmni.module.fhir2addlextension.advice.FhirEncounterSaveAdvice;
+import org.bahmni.module.fhir2addlextension.advice.PersonAttributeTypeChangeAdvice;
+import org.bahmni.module.fhir2addlextension.advice.ValueSetExpansionCacheEvictAdvice;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.PersonService;
 import org.openmrs.module.fhir2.api.FhirEncounterService;
 import org.springframework.aop.Advisor;
 import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
@@ -33,4 +38,66 @@ public class Fhir2AddlExtensionAopConfiguration {
 			}
 		};
 	}
+	
+	@Bean
+	public ValueSetExpansionCacheEvictAdvice valueSetExpansionCacheEvictAdvice() {
+		return new ValueSetExpansionCacheEvictAdvice();
+	}
+	
+	@Bean
+	public Advisor createValueSetExpansionCacheEvictAdvisor(
+	        @Autowired ValueSetExpansionCacheEvictAdvice valueSetExpansionCacheEvictAdvice) {
+		final List<String> CONCEPT_CHANGE_METHODS = Arrays.asList("saveConcept", "retireConcept", "unretireConcept",
+		    "purgeConcept");
+		return new StaticMethodMatcherPointcutAdvisor(
+		                                              valueSetExpansionCacheEvictAdvice) {
+			
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return ConceptService.class.isAssignableFrom(targetClass)
+				        && CONCEPT_CHANGE_METHODS.contains(method.getName());
+			}
+		};
+	}
+	
+	@Bean
+	public DrugNameIndexUpdateAdvice drugNameIndexUpdateAdvice() {
+		return new DrugNameIndexUpdateAdvice();
+	}
+	
+	@Bean
+	public Advisor createDrugNameIndexUpdateAdvisor(@Autowired DrugNameIndexUpdateAdvice drugNameIndexUpdateAdvice) {
+		final List<String> DRUG_CHANGE_METHODS = Arrays.asList("saveDrug", "retireDrug", "unretireDrug", "purgeDrug",
+		    "saveConcept");
+		return new StaticMethodMatcherPointcutAdvisor(
+		                                              drugNameIndexUpdateAdvice) {
+			
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return ConceptService.class.isAssignableFrom(targetClass)
+				        && DRUG_CHANGE_METHODS.contains(method.getName());
+			}
+		};
+	}
+	
+	@Bean
+	public PersonAttributeTypeChangeAdvice personAttributeTypeChangeAdvice() {
+		return new PersonAttributeTypeChangeAdvice();
+	}
+	
+	@Bean
+	public Advisor createPersonAttributeTypeChangeAdvisor(
+	        @Autowired PersonAttributeTypeChangeAdvice personAttributeTypeChangeAdvice) {
+		final List<String> ATTRIBUTE_TYPE_CHANGE_METHODS = Arrays.asList("savePersonAttributeType",
+		    "retirePersonAttributeType", "unretirePersonAttributeType", "purgePersonAttributeType");
+		return new StaticMethodMatcherPointcutAdvisor(
+		                                              personAttributeTypeChangeAdvice) {
+			
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return PersonService.class.isAssignableFrom(targetClass)
+				        && ATTRIBUTE_TYPE_CHANGE_METHODS.contains(method.getName());
+			}
+		};
+	}
 }
@@ -0,0 +1,48 @@
+package org.bahmni.module.fhir2addlextension.api;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+
+import java.io.IOException;
+import java.util.Properties;
+
+public class H2SessionFactoryUtils {
+
+	public static final String[] DOCUMENT_REFERENCE_MAPPINGS = { "DocumentReference.hbm.xml",
+	        "DocumentReferenceContent.hbm.xml", "DocumentReferenceAttribute.hbm.xml",
+	        "DocumentReferenceAttributeType.hbm.xml" };
+
+	/**
+	 * Builds a SessionFactory over the OpenMRS model plus the given module mappings, against a named in-memory H2
+	 * database whose schema is created from the mappings. The database lives until the JVM exits.
+	 *
+	 * @param databaseName name of the in-memory database
+	 * @param moduleMappings classpath resources of the module's mappings to add
+	 */
+	public static SessionFactory buildSessionFactory(String databaseName, String... moduleMappings) throws IOException {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setUrl("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+
+		Properties properties = new Properties();
+		properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		properties.put("hibernate.hbm2ddl.auto", "create");
+		properties.put("hibernate.search.autoregister_listeners", "false");
+		properties.put("hibernate.current_session_context_class", "thread");
+
+		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+		for (Resource mapping : new PathMatchingResourcePatternResolver()
+		        .getResources("classpath*:org/openmrs/api/db/hibernate/*.hbm.xml")) {
+			builder.addInputStream(mapping.getInputStream());
+		}
+		builder.scanPackages("org.openmrs");
+		for (String moduleMapping : moduleMappings) {
+			builder.addResource(moduleMapping);
+		}
+		builder.addProperties(properties);
+		return builder.buildSessionFactory();
+	}
+}
@@ -0,0 +1,98 @@
+package org.bahmni.module.fhir2addlextension.api.context;
+
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.Patient;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceResolutionContextHolderTest {
+	
+	private final AtomicInteger lookupCount = new AtomicInteger();
+	
+	private final Function<Reference, Patient> patientLookup = reference -> {
+		lookupCount.incrementAndGet();
+		Patient patient = new Patient();
+		patient.setUuid(reference.getReferenceElement().getIdPart());
+		return patient;
+	};
+	
+	@After
+	public void tearDown() {
+		ReferenceResolutionContextHolder.close();
+	}
+	
+	@Test
+	public void shouldLookUpEveryReferenceOutsideOfBundle() {
+		resolve("Patient/patient-1");
+		resolve("Patient/patient-1");
+		
+		assertEquals(2, lookupCount.get());
+	}
+	
+	@Test
+	public void shouldLookUpRepeatedReferenceOncePerBundle() {
+		ReferenceResolutionContextHolder.open();
+		
+		Patient first = resolve("Patient/patient-1");
+		Patient second = resolve("Patient/patient-1");
+		resolve("Patient/patient-2");
+		
+		assertSame(first, second);
+		assertEquals(2, lookupCount.get());
+		assertEquals(3, ReferenceResolutionContextHolder.getResolutionCount());
+		assertEquals(1, ReferenceResolutionContextHolder.getHitCount());
+	}
+	
+	@Test
+	public void shouldLookUpAgainReferencesThatResolvedToNothing() {
+		ReferenceResolutionContextHolder.open();
+		
+		assertNull(ReferenceResolutionContextHolder.resolve("Patient", new Reference("Patient/patient-1"), reference -> {
+			lookupCount.incrementAndGet();
+			return null;
+		}));
+		resolve("Patient/patient-1");
+		
+		assertEquals(2, lookupCount.get());
+	}
+	
+	@Test
+	public void shouldKeepResolvedReferencesUntilOutermostBundleOperationEnds() {
+		ReferenceResolutionContextHolder.withinBundle(() -> {
+			resolve("Patient/patient-1");
+			ReferenceResolutionContextHolder.withinBundle(() -> resolve("Patient/patient-1"));
+			return resolve("Patient/patient-1");
+		});
+		resolve("Patient/patient-1");
+		
+		assertEquals(2, lookupCount.get());
+		assertEquals(0, ReferenceResolutionContextHolder.getResolutionCount());
+	}
+	
+	@Test
+	public void shouldTellObjectsResolvedInBundleByIdentity() {
+		ReferenceResolutionContextHolder.open();
+		
+		Patient resolved = resolve("Patient/patient-1");
+		Patient samePatientLoadedAgain = new Patient();
+		samePatientLoadedAgain.setUuid(resolved.getUuid());
+		
+		Set<Object> resolvedObjects = ReferenceResolutionContextHolder.getResolvedObjects();
+		assertTrue(resolvedObjects.contains(resolved));
+		assertFalse(resolvedObjects.contains(samePatientLoadedAgain));
+	}
+	
+	private Patient resolve(String reference) {
+		return ReferenceResolutionContextHolder.resolve("Patient", new Reference(reference), patientLookup);
+	}
+}
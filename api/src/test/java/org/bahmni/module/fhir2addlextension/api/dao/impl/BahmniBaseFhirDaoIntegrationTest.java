@@ -0,0 +1,163 @@
+package org.bahmni.module.fhir2addlextension.api.dao.impl;
+
+import org.bahmni.module.fhir2addlextension.api.H2SessionFactoryUtils;
+import org.bahmni.module.fhir2addlextension.api.model.FhirDocumentReference;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Pages through document references stored in an in-memory H2 database with the module's Hibernate mappings, to
+ * check that pages of unsorted searches loaded by seeking past the previous page's last id start and end where they
+ * should, and that the search parameters are left as they were given.
+ */
+public class BahmniBaseFhirDaoIntegrationTest {
+
+	private static final int DOCUMENT_REFERENCE_COUNT = 120;
+
+	private static final int PAGE_SIZE = 50;
+
+	private static SessionFactory sessionFactory;
+
+	private DocumentReferenceDaoImpl documentReferenceDao;
+
+	private Transaction transaction;
+
+	@BeforeClass
+	public static void buildSessionFactory() throws Exception {
+		sessionFactory = H2SessionFactoryUtils.buildSessionFactory("keysetpaging",
+		    H2SessionFactoryUtils.DOCUMENT_REFERENCE_MAPPINGS);
+
+		List<Integer> ids = IntStream.rangeClosed(1, DOCUMENT_REFERENCE_COUNT).boxed().collect(Collectors.toList());
+		Collections.shuffle(ids);
+		try (Session session = sessionFactory.openSession()) {
+			Transaction insertTransaction = session.beginTransaction();
+			session.doWork(connection -> {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+				}
+				try (PreparedStatement insert = connection.prepareStatement(
+				    "insert into document_reference (document_reference_id, status, doc_status, type_concept_id, uuid,"
+				            + " creator, date_created, voided) values (?, 'CURRENT', 'FINAL', 1, ?, 1, ?, false)")) {
+					Timestamp dateCreated = new Timestamp(System.currentTimeMillis());
+					for (Integer id : ids) {
+						insert.setInt(1, id);
+						insert.setString(2, UUID.randomUUID().toString());
+						insert.setTimestamp(3, dateCreated);
+						insert.addBatch();
+					}
+					insert.executeBatch();
+				}
+			});
+			insertTransaction.commit();
+		}
+	}
+
+	@AfterClass
+	public static void closeSessionFactory() {
+		if (sessionFactory != null) {
+			sessionFactory.close();
+		}
+	}
+
+	@Before
+	public void setUp() {
+		documentReferenceDao = spy(new DocumentReferenceDaoImpl());
+		doReturn(sessionFactory).when(documentReferenceDao).getSessionFactory();
+		transaction = sessionFactory.getCurrentSession().beginTransaction();
+	}
+
+	@After
+	public void tearDown() {
+		transaction.rollback();
+	}
+
+	@Test
+	public void shouldServeConsecutivePagesOfUnsortedSearchInIdOrder() {
+		SearchParameterMap searchParams = new SearchParameterMap();
+
+		assertEquals(idRange(1, 50), getPage(searchParams, 0));
+		assertEquals(idRange(51, 100), getPage(searchParams, 50));
+		assertEquals(idRange(101, 120), getPage(searchParams, 100));
+	}
+
+	@Test
+	public void shouldStartFollowingPageAfterLastIdOfPreviousPage() {
+		SearchParameterMap searchParams = new SearchParameterMap();
+		assertEquals(idRange(1, 50), getPage(searchParams, 0));
+
+		// An offset would now skip document reference 51, as one of the first page's results is no longer found
+		sessionFactory.getCurrentSession()
+		        .createQuery("update FhirDocumentReference set voided = true where id = :id")
+		        .setParameter("id", 10).executeUpdate();
+
+		assertEquals(idRange(51, 100), getPage(searchParams, 50));
+	}
+
+	@Test
+	public void shouldLoadPageByOffsetWhenPreviousPageWasNotServed() {
+		SearchParameterMap searchParams = new SearchParameterMap();
+
+		assertEquals(idRange(101, 120), getPage(searchParams, 100));
+	}
+
+	@Test
+	public void shouldNotChangeSearchParametersWhenLoadingKeysetPage() {
+		SearchParameterMap searchParams = new SearchParameterMap();
+		getPage(searchParams, 0);
+		int parameterCount = searchParams.getParameters().size();
+		getPage(searchParams, 50);
+
+		assertEquals(50, searchParams.getFromIndex());
+		assertEquals(100, searchParams.getToIndex());
+		assertEquals(parameterCount, searchParams.getParameters().size());
+	}
+
+	@Test
+	public void shouldOnlyContinueFromLastIdOfPreviousPageOfSameSearch() {
+		SearchParameterMap searchParams = new SearchParameterMap();
+		SearchParameterMap otherSearchParams = new SearchParameterMap();
+		assertEquals(idRange(1, 50), getPage(searchParams, 0));
+
+		sessionFactory.getCurrentSession()
+		        .createQuery("update FhirDocumentReference set voided = true where id = :id")
+		        .setParameter("id", 10).executeUpdate();
+
+		assertEquals(idRange(52, 101), getPage(otherSearchParams, 50));
+		assertEquals(idRange(51, 100), getPage(searchParams, 50));
+	}
+
+	private List<Integer> getPage(SearchParameterMap searchParams, int fromIndex) {
+		searchParams.setFromIndex(fromIndex);
+		searchParams.setToIndex(fromIndex + PAGE_SIZE);
+		List<Integer> ids = new ArrayList<>();
+		for (FhirDocumentReference documentReference : documentReferenceDao.getSearchResults(searchParams)) {
+			ids.add(documentReference.getId());
+		}
+		return ids;
+	}
+
+	private List<Integer> idRange(int firstId, int lastId) {
+		return IntStream.rangeClosed(firstId, lastId).boxed().collect(Collectors.toList());
+	}
+}
@@ -2,6 +2,8 @@ package org.bahmni.module.fhir2addlextension.api.dao.impl;
 
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
+import org.bahmni.module.fhir2addlextension.api.helper.DrugNameIndex;
 import org.hibernate.criterion.Criterion;
 import org.junit.Before;
 import org.junit.Test;
@@ -9,15 +11,23 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
 import org.openmrs.Drug;
 import org.openmrs.api.ConceptService;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import static org.bahmni.module.fhir2addlextension.api.TestUtils.setPropertyOnObject;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -26,12 +36,14 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -52,6 +64,12 @@ public class BahmniFhirMedicationDaoImplTest {
 	@Mock
 	private ConceptService conceptService;
 	
+	@Mock(lenient = true)
+	private DrugNameIndex drugNameIndex;
+	
+	@Mock
+	private BahmniDrugDao drugDao;
+	
 	@InjectMocks
 	private BahmniFhirMedicationDaoImpl bahmniFhirMedicationDao;
 	
@@ -67,6 +85,9 @@ public class BahmniFhirMedicationDaoImplTest {
 
 		drugList = new ArrayList<>();
 		drugList.add(drug);
+		
+		// the index can not answer the phrase unless a test makes it, so the database is searched
+		when(drugNameIndex.search(anyString())).thenReturn(null);
 	}
 	
 	@Test
@@ -326,4 +347,80 @@ public class BahmniFhirMedicationDaoImplTest {
 		
 		assertThat(result, notNullValue());
 	}
+	
+	@Test
+	public void getSearchResults_shouldLoadRequestedPageOfDrugIdsFromDrugNameIndex() {
+		useDrugNameIndex(Arrays.asList(7, 3, 9, 5));
+		SearchParameterMap searchParams = new SearchParameterMap();
+		searchParams.addParameter(FhirConstants.NAME_SEARCH_HANDLER, new StringParam(DRUG_NAME));
+		searchParams.setFromIndex(1);
+		searchParams.setToIndex(3);
+		when(drugDao.getDrugsByIds(Arrays.asList(3, 9))).thenReturn(drugList);
+		
+		List<Drug> result = bahmniFhirMedicationDao.getSearchResults(searchParams);
+		
+		assertThat(result, equalTo(drugList));
+		verifyNoInteractions(conceptService);
+	}
+	
+	@Test
+	public void getSearchResultsCount_shouldCountMatchesOfDrugNameIndex() {
+		useDrugNameIndex(Arrays.asList(7, 3, 9, 5));
+		SearchParameterMap searchParams = new SearchParameterMap();
+		searchParams.addParameter(FhirConstants.NAME_SEARCH_HANDLER, new StringParam(DRUG_NAME));
+		
+		int count = bahmniFhirMedicationDao.getSearchResultsCount(searchParams);
+		
+		assertEquals(4, count);
+		verifyNoInteractions(conceptService);
+	}
+	
+	@Test
+	public void getSearchResults_shouldPageDrugNameIndexMatchesInRankOfConceptServiceSearch() throws Exception {
+		Concept paracetamol = new Concept(100);
+		paracetamol.addName(new ConceptName("Paracetamol", Locale.ENGLISH));
+		paracetamol.addName(new ConceptName("Acetaminophen", Locale.ENGLISH));
+		Map<Integer, Drug> drugsById = new HashMap<>();
+		for (Drug indexedDrug : Arrays.asList(createDrug(1, "Paracetamol 500mg Tablet", paracetamol),
+		    createDrug(2, "Dolo 650", paracetamol), createDrug(3, "Paracetamol 125mg Syrup", paracetamol),
+		    createDrug(4, "Crocin 650 mg", paracetamol), createDrug(5, "Ibuprofen 400mg", new Concept(200)))) {
+			drugsById.put(indexedDrug.getDrugId(), indexedDrug);
+		}
+		when(drugDao.getAllDrugsWithConceptNames()).thenReturn(new ArrayList<>(drugsById.values()));
+		when(drugDao.getDrugsByIds(anyList())).thenAnswer(invocation -> ((List<Integer>) invocation.getArgument(0))
+		        .stream().map(drugsById::get).collect(Collectors.toList()));
+		DrugNameIndex builtDrugNameIndex = new DrugNameIndex();
+		setPropertyOnObject(builtDrugNameIndex, "drugDao", drugDao);
+		builtDrugNameIndex.rebuild();
+		setPropertyOnObject(bahmniFhirMedicationDao, "drugNameIndex", builtDrugNameIndex);
+		// ConceptService#getDrugs ranks drugs matching by name first, then drugs matching by concept name only, each
+		// by drug name
+		List<Drug> rankedMatches = Arrays.asList(drugsById.get(3), drugsById.get(1), drugsById.get(4), drugsById.get(2));
+		
+		for (int pageSize = 1; pageSize <= rankedMatches.size(); pageSize++) {
+			for (int fromIndex = 0; fromIndex < rankedMatches.size(); fromIndex += pageSize) {
+				SearchParameterMap searchParams = new SearchParameterMap();
+				searchParams.addParameter(FhirConstants.NAME_SEARCH_HANDLER, new StringParam("paracetamol"));
+				searchParams.setFromIndex(fromIndex);
+				searchParams.setToIndex(fromIndex + pageSize);
+				
+				assertEquals(rankedMatches.subList(fromIndex, Math.min(fromIndex + pageSize, rankedMatches.size())),
+				    bahmniFhirMedicationDao.getSearchResults(searchParams));
+				assertEquals(rankedMatches.size(), bahmniFhirMedicationDao.getSearchResultsCount(searchParams));
+			}
+		}
+		verifyNoInteractions(conceptService);
+	}
+	
+	private Drug createDrug(int drugId, String name, Concept concept) {
+		Drug drug = new Drug(drugId);
+		drug.setName(name);
+		drug.setConcept(concept);
+		drug.setRetired(false);
+		return drug;
+	}
+	
+	private void useDrugNameIndex(List<Integer> matchingDrugIds) {
+		when(drugNameIndex.search(DRUG_NAME)).thenReturn(matchingDrugIds);
+	}
 }
@@ -1,18 +1,14 @@
 package org.bahmni.module.fhir2addlextension.api.dao.impl;
 
+import org.bahmni.module.fhir2addlextension.api.H2SessionFactoryUtils;
 import org.bahmni.module.fhir2addlextension.api.model.FhirDocumentReference;
-import org.h2.jdbcx.JdbcDataSource;
 import org.hibernate.SessionFactory;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
 
-import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -29,28 +25,8 @@ public class DocumentReferenceDaoImplIntegrationTest {
 	
 	@BeforeClass
 	public static void buildSessionFactory() throws Exception {
-		JdbcDataSource dataSource = new JdbcDataSource();
-		dataSource.setUrl("jdbc:h2:mem:docref;DB_CLOSE_DELAY=-1");
-		dataSource.setUser("sa");
-		
-		Properties properties = new Properties();
-		properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
-		properties.put("hibernate.hbm2ddl.auto", "create");
-		properties.put("hibernate.search.autoregister_listeners", "false");
-		
-		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
-		for (Resource mapping : new PathMatchingResourcePatternResolver()
-		        .getResources("classpath*:org/openmrs/api/db/hibernate/*.hbm.xml")) {
-			builder.addInputStream(mapping.getInputStream());
-		}
-		builder.scanPackages("org.openmrs");
-		builder.addResource("DocumentReference.hbm.xml");
-		builder.addResource("DocumentReferenceContent.hbm.xml");
-		builder.addResource("DocumentReferenceAttribute.hbm.xml");
-		builder.addResource("DocumentReferenceAttributeType.hbm.xml");
-		builder.addProperties(properties);
-		
-		sessionFactory = builder.buildSessionFactory();
+		sessionFactory = H2SessionFactoryUtils.buildSessionFactory("docref",
+		    H2SessionFactoryUtils.DOCUMENT_REFERENCE_MAPPINGS);
 	}
 	
 	@AfterClass
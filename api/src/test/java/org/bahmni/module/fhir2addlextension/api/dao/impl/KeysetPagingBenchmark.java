@@ -0,0 +1,115 @@
+package org.bahmni.module.fhir2addlextension.api.dao.impl;
+
+import org.bahmni.module.fhir2addlextension.api.H2SessionFactoryUtils;
+import org.bahmni.module.fhir2addlextension.api.model.FhirDocumentReference;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading page 1 and page 500 of a document reference search by offset and by seeking past the last id of
+ * the previous page, over an in-memory H2 database built from the module's Hibernate mappings. Offset paging gets
+ * slower with the page number while keyset paging stays flat. Run with
+ * {@code mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.bahmni.module.fhir2addlextension.api.dao.impl.KeysetPagingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeysetPagingBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+
+	private static final int PAGE_COUNT = 500;
+
+	@Param({ "1", "500" })
+	private int page;
+
+	private SessionFactory sessionFactory;
+
+	@Setup
+	public void setup() throws Exception {
+		sessionFactory = H2SessionFactoryUtils.buildSessionFactory("keyset",
+		    H2SessionFactoryUtils.DOCUMENT_REFERENCE_MAPPINGS);
+
+		try (Session session = sessionFactory.openSession()) {
+			session.doWork(connection -> {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+				}
+				try (PreparedStatement insert = connection.prepareStatement(
+				    "insert into document_reference (document_reference_id, status, doc_status, type_concept_id, uuid,"
+				            + " creator, date_created, voided) values (?, 'CURRENT', 'FINAL', 1, ?, 1, ?, false)")) {
+					Timestamp dateCreated = new Timestamp(System.currentTimeMillis());
+					for (int id = 1; id <= PAGE_SIZE * PAGE_COUNT; id++) {
+						insert.setInt(1, id);
+						insert.setString(2, UUID.randomUUID().toString());
+						insert.setTimestamp(3, dateCreated);
+						insert.addBatch();
+					}
+					insert.executeBatch();
+				}
+			});
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public List<?> offsetPage() {
+		try (Session session = sessionFactory.openSession()) {
+			return pageCriteria(session).setFirstResult((page - 1) * PAGE_SIZE).list();
+		}
+	}
+
+	@Benchmark
+	public List<?> keysetPage() {
+		try (Session session = sessionFactory.openSession()) {
+			Criteria criteria = pageCriteria(session);
+			if (page > 1) {
+				criteria.add(BahmniBaseFhirDao.keysetRestriction((page - 1) * PAGE_SIZE));
+			}
+			return criteria.list();
+		}
+	}
+
+	private Criteria pageCriteria(Session session) {
+		return session.createCriteria(FhirDocumentReference.class).add(Restrictions.eq("voided", false))
+		        .addOrder(Order.asc("id")).setProjection(Projections.id()).setMaxResults(PAGE_SIZE);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(KeysetPagingBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,191 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import org.bahmni.module.fhir2addlextension.api.H2SessionFactoryUtils;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openmrs.Drug;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering a Medication name search (first page and total count) from the drug name index with the two
+ * LIKE queries over drug and concept names that the database path runs, over an in-memory H2 database built from the
+ * OpenMRS Hibernate mappings. The phrases cycle through more distinct searches than the index keeps, so the index is
+ * measured on lookups rather than on its recent searches. Run with
+ * {@code mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.bahmni.module.fhir2addlextension.api.helper.DrugNameIndexBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrugNameIndexBenchmark {
+
+	private static final int CONCEPT_COUNT = 5000;
+
+	private static final int DRUGS_PER_CONCEPT = 4;
+
+	private static final int PAGE_SIZE = 10;
+
+	private static final String[] FORMS = { "Tablet", "Syrup", "Injection", "Capsule" };
+
+	private static final String DRUG_SEARCH = "select distinct d from Drug d left join d.concept c left join c.names n"
+	        + " where d.retired = false and (lower(d.name) like :phrase or lower(n.name) like :phrase)";
+
+	private SessionFactory sessionFactory;
+
+	private DrugNameIndex drugNameIndex;
+
+	private final List<String> phrases = new ArrayList<>();
+
+	private int nextPhrase = 0;
+
+	@Setup
+	public void setup() throws Exception {
+		sessionFactory = H2SessionFactoryUtils.buildSessionFactory("drugnames");
+
+		try (Session session = sessionFactory.openSession()) {
+			session.doWork(connection -> {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+				}
+				Timestamp dateCreated = new Timestamp(System.currentTimeMillis());
+				try (PreparedStatement concept = connection.prepareStatement(
+				    "insert into concept (concept_id, retired, datatype_id, class_id, is_set, creator, date_created, uuid)"
+				            + " values (?, false, 1, 1, false, 1, ?, ?)");
+				        PreparedStatement conceptName = connection.prepareStatement(
+				            "insert into concept_name (concept_name_id, concept_id, name, locale, locale_preferred, creator,"
+				                    + " date_created, voided, uuid) values (?, ?, ?, 'en', false, 1, ?, false, ?)");
+				        PreparedStatement drug = connection.prepareStatement(
+				            "insert into drug (drug_id, concept_id, name, combination, creator, date_created, retired, uuid)"
+				                    + " values (?, ?, ?, false, 1, ?, false, ?)")) {
+					for (int conceptId = 1; conceptId <= CONCEPT_COUNT; conceptId++) {
+						concept.setInt(1, conceptId);
+						concept.setTimestamp(2, dateCreated);
+						concept.setString(3, UUID.randomUUID().toString());
+						concept.addBatch();
+						for (int nameIndex = 0; nameIndex < 2; nameIndex++) {
+							conceptName.setInt(1, conceptId * 2 + nameIndex);
+							conceptName.setInt(2, conceptId);
+							conceptName.setString(3, conceptName(conceptId, nameIndex));
+							conceptName.setTimestamp(4, dateCreated);
+							conceptName.setString(5, UUID.randomUUID().toString());
+							conceptName.addBatch();
+						}
+						for (int form = 0; form < DRUGS_PER_CONCEPT; form++) {
+							drug.setInt(1, conceptId * DRUGS_PER_CONCEPT + form);
+							drug.setInt(2, conceptId);
+							drug.setString(3, conceptName(conceptId, 0) + " " + (form + 1) * 125 + "mg " + FORMS[form]);
+							drug.setTimestamp(4, dateCreated);
+							drug.setString(5, UUID.randomUUID().toString());
+							drug.addBatch();
+						}
+					}
+					concept.executeBatch();
+					conceptName.executeBatch();
+					drug.executeBatch();
+				}
+			});
+		}
+
+		List<Drug> drugs;
+		try (Session session = sessionFactory.openSession()) {
+			drugs = session.createQuery("select distinct d from Drug d left join fetch d.concept c left join fetch c.names"
+			        + " where d.retired = false", Drug.class).list();
+		}
+		drugNameIndex = new DrugNameIndex();
+		drugNameIndex.setDrugDao(new BahmniDrugDao() {
+
+			@Override
+			public List<Drug> getAllDrugsWithConceptNames() {
+				return drugs;
+			}
+
+			@Override
+			public List<Drug> getDrugsByIds(List<Integer> drugIds) {
+				return Collections.emptyList();
+			}
+		});
+		drugNameIndex.rebuild();
+
+		for (int conceptId = 1000; conceptId <= CONCEPT_COUNT; conceptId += 13) {
+			phrases.add(conceptSuffix(conceptId));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void databaseSearch(Blackhole blackhole) {
+		String phrase = "%" + nextPhrase().toLowerCase(Locale.ROOT) + "%";
+		try (Session session = sessionFactory.openSession()) {
+			blackhole.consume(session.createQuery(DRUG_SEARCH, Drug.class).setParameter("phrase", phrase)
+			        .setMaxResults(PAGE_SIZE).list());
+			blackhole.consume(session.createQuery(DRUG_SEARCH.replace("select distinct d", "select count(distinct d)"))
+			        .setParameter("phrase", phrase).uniqueResult());
+		}
+	}
+
+	@Benchmark
+	public void indexSearch(Blackhole blackhole) {
+		List<Integer> drugIds = drugNameIndex.search(nextPhrase());
+		blackhole.consume(drugIds.size());
+		if (drugIds.isEmpty()) {
+			return;
+		}
+		try (Session session = sessionFactory.openSession()) {
+			blackhole.consume(session.createQuery("from Drug d where d.drugId in (:drugIds)", Drug.class)
+			        .setParameterList("drugIds", drugIds.subList(0, Math.min(PAGE_SIZE, drugIds.size()))).list());
+		}
+	}
+
+	private String nextPhrase() {
+		nextPhrase = (nextPhrase + 1) % phrases.size();
+		return phrases.get(nextPhrase);
+	}
+
+	private static String conceptName(int conceptId, int nameIndex) {
+		return (nameIndex == 0 ? "Drug" : "Generic") + conceptSuffix(conceptId);
+	}
+
+	private static String conceptSuffix(int conceptId) {
+		StringBuilder suffix = new StringBuilder();
+		for (int remaining = conceptId; remaining > 0; remaining /= 26) {
+			suffix.append((char) ('a' + remaining % 26));
+		}
+		return suffix.toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DrugNameIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,129 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniDrugDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DrugNameIndexTest {
+
+	@Mock
+	private BahmniDrugDao drugDao;
+
+	private DrugNameIndex drugNameIndex;
+
+	private Concept paracetamol;
+
+	@Before
+	public void setUp() {
+		drugNameIndex = new DrugNameIndex();
+		drugNameIndex.setDrugDao(drugDao);
+		paracetamol = createConcept(100, "Paracetamol", "Acetaminophen");
+	}
+
+	@Test
+	public void shouldNotAnswerSearchesBeforeItIsBuilt() {
+		assertNull(drugNameIndex.search("para"));
+	}
+
+	@Test
+	public void shouldRankNameMatchesBeforeConceptNameMatches() {
+		when(drugDao.getAllDrugsWithConceptNames()).thenReturn(Arrays.asList(
+		    createDrug(1, "Paracetamol 500mg Tablet", paracetamol), createDrug(2, "Crocin 650 mg", paracetamol),
+		    createDrug(3, "Paracetamol 125mg Syrup", paracetamol), createDrug(4, "Ibuprofen 400mg", createConcept(200,
+		        "Ibuprofen"))));
+		drugNameIndex.rebuild();
+
+		assertEquals(Arrays.asList(3, 1, 2), drugNameIndex.search("PARACET"));
+		assertEquals(Collections.singletonList(1), drugNameIndex.search("tablet 500"));
+		assertEquals(Arrays.asList(2, 3, 1), drugNameIndex.search("aceta"));
+		assertEquals(Collections.singletonList(2), drugNameIndex.search("mg cro"));
+		assertTrue(drugNameIndex.search("aspirin").isEmpty());
+	}
+
+	@Test
+	public void shouldNotAnswerSearchesWithoutWordOfThreeLetters() {
+		when(drugDao.getAllDrugsWithConceptNames()).thenReturn(
+		    Collections.singletonList(createDrug(1, "Paracetamol 500mg Tablet", paracetamol)));
+		drugNameIndex.rebuild();
+
+		assertNull(drugNameIndex.search("pa"));
+		assertNull(drugNameIndex.search("pa 5"));
+		assertNull(drugNameIndex.search(" "));
+		assertEquals(Collections.singletonList(1), drugNameIndex.search("pa tab"));
+	}
+
+	@Test
+	public void shouldAnswerRepeatedSearchFromOneLookup() {
+		when(drugDao.getAllDrugsWithConceptNames()).thenReturn(
+		    Collections.singletonList(createDrug(1, "Paracetamol 500mg Tablet", paracetamol)));
+		drugNameIndex.rebuild();
+
+		assertSame(drugNameIndex.search("para tab"), drugNameIndex.search(" Para  Tab "));
+	}
+
+	@Test
+	public void shouldFollowChangesToDrugsAndConcepts() {
+		Drug tablet = createDrug(1, "Paracetamol 500mg Tablet", paracetamol);
+		when(drugDao.getAllDrugsWithConceptNames()).thenReturn(Collections.singletonList(tablet));
+		drugNameIndex.rebuild();
+		assertEquals(Collections.singletonList(1), drugNameIndex.search("tablet"));
+
+		drugNameIndex.update(createDrug(2, "Paracetamol 650mg Tablet", paracetamol));
+		assertEquals(Arrays.asList(1, 2), drugNameIndex.search("tablet"));
+
+		tablet.setRetired(true);
+		drugNameIndex.update(tablet);
+		assertEquals(Collections.singletonList(2), drugNameIndex.search("tablet"));
+
+		paracetamol.addName(new ConceptName("Calpol", Locale.ENGLISH));
+		drugNameIndex.updateConcept(paracetamol);
+		assertEquals(Collections.singletonList(2), drugNameIndex.search("calpol"));
+	}
+
+	@Test
+	public void shouldApplyChangesMadeWhileRebuilding() {
+		Drug tablet = createDrug(1, "Paracetamol 500mg Tablet", paracetamol);
+		when(drugDao.getAllDrugsWithConceptNames()).thenAnswer(invocation -> {
+			// committed after the drugs were loaded, so the loaded drugs do not have these changes
+			drugNameIndex.update(createDrug(2, "Paracetamol 650mg Tablet", paracetamol));
+			drugNameIndex.remove(tablet);
+			return Collections.singletonList(tablet);
+		});
+		drugNameIndex.rebuild();
+
+		assertEquals(Collections.singletonList(2), drugNameIndex.search("tablet"));
+	}
+
+	private Drug createDrug(int drugId, String name, Concept concept) {
+		Drug drug = new Drug(drugId);
+		drug.setName(name);
+		drug.setConcept(concept);
+		drug.setRetired(false);
+		return drug;
+	}
+
+	private Concept createConcept(int conceptId, String... names) {
+		Concept concept = new Concept(conceptId);
+		for (String name : names) {
+			concept.addName(new ConceptName(name, Locale.ENGLISH));
+		}
+		return concept;
+	}
+}
@@ -0,0 +1,80 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ordering of synthetic encounter bundles. Each bundle has one encounter followed by observations that
+ * reference it, grouped into nested hasMember chains listed parent first, which is the worst case for ordering
+ * by repeated passes. Run with
+ * {@code mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.bahmni.module.fhir2addlextension.api.helper.EncounterBundleEntriesHelperBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncounterBundleEntriesHelperBenchmark {
+
+	private static final int OBSERVATION_GROUP_DEPTH = 10;
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int entryCount;
+
+	private List<Bundle.BundleEntryComponent> entries;
+
+	@Setup
+	public void setup() {
+		entries = new ArrayList<>(entryCount);
+		entries.add(createBundleEntry(new Encounter(), "urn:uuid:encounter"));
+		for (int i = 1; i < entryCount; i++) {
+			Observation observation = new Observation();
+			observation.setEncounter(new Reference("urn:uuid:encounter"));
+			if (i % OBSERVATION_GROUP_DEPTH != 0 && i + 1 < entryCount) {
+				observation.addHasMember(new Reference("urn:uuid:obs-" + (i + 1)));
+			}
+			entries.add(createBundleEntry(observation, "urn:uuid:obs-" + i));
+		}
+	}
+
+	@Benchmark
+	public List<Bundle.BundleEntryComponent> orderEntriesByReference() {
+		return EncounterBundleEntriesHelper.orderEntriesByReference(entries);
+	}
+
+	private Bundle.BundleEntryComponent createBundleEntry(Resource resource, String fullUrl) {
+		Bundle.BundleEntryComponent entry = new Bundle.BundleEntryComponent();
+		entry.setFullUrl(fullUrl);
+		entry.setResource(resource);
+		entry.setRequest(new Bundle.BundleEntryRequestComponent().setMethod(Bundle.HTTPVerb.POST).setUrl(
+		    resource.getResourceType().name()));
+		return entry;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EncounterBundleEntriesHelperBenchmark.class.getSimpleName()).build()).run();
+	}
+}
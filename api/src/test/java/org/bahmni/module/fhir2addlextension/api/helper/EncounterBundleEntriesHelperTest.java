@@ -1,6 +1,7 @@
 package org.bahmni.module.fhir2addlextension.api.helper;
 
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import org.bahmni.module.fhir2addlextension.api.TestDataFactory;
 import org.hl7.fhir.r4.model.*;
 import org.junit.Assert;
@@ -10,6 +11,7 @@ import org.openmrs.module.fhir2.FhirConstants;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -206,6 +208,64 @@ public class EncounterBundleEntriesHelperTest {
 		assertTrue(result.indexOf(medicationRequestEntry) > result.indexOf(encounterEntry));
 	}
 	
+	@Test
+	public void shouldKeepBundleOrderAmongSiblings() {
+		Bundle.BundleEntryComponent encounterEntry = createBundleEntry(createEncounter(), "urn:uuid:encounter");
+		
+		Condition condition = createCondition();
+		condition.setEncounter(new Reference("urn:uuid:encounter"));
+		Bundle.BundleEntryComponent conditionEntry = createBundleEntry(condition, "urn:uuid:condition");
+		
+		MedicationRequest medicationRequest = createMedicationRequest();
+		medicationRequest.setEncounter(new Reference("urn:uuid:encounter"));
+		Bundle.BundleEntryComponent medicationRequestEntry = createBundleEntry(medicationRequest, "urn:uuid:medication");
+		
+		ServiceRequest serviceRequest = createServiceRequest();
+		serviceRequest.setEncounter(new Reference("urn:uuid:encounter"));
+		Bundle.BundleEntryComponent serviceRequestEntry = createBundleEntry(serviceRequest, "urn:uuid:service");
+		
+		entries.add(medicationRequestEntry);
+		entries.add(conditionEntry);
+		entries.add(encounterEntry);
+		entries.add(serviceRequestEntry);
+		
+		List<Bundle.BundleEntryComponent> result = EncounterBundleEntriesHelper.orderEntriesByReference(entries);
+		
+		assertEquals(Arrays.asList(encounterEntry, medicationRequestEntry, conditionEntry, serviceRequestEntry), result);
+	}
+	
+	@Test
+	public void shouldReportEntriesInCircularReference() {
+		Bundle.BundleEntryComponent encounterEntry = createBundleEntry(createEncounter(), "urn:uuid:encounter");
+		
+		Observation firstObs = createObservation();
+		firstObs.addHasMember(new Reference("urn:uuid:secondObs"));
+		Bundle.BundleEntryComponent firstObsEntry = createBundleEntry(firstObs, "urn:uuid:firstObs");
+		
+		Observation secondObs = createObservation();
+		secondObs.addHasMember(new Reference("urn:uuid:firstObs"));
+		Bundle.BundleEntryComponent secondObsEntry = createBundleEntry(secondObs, "urn:uuid:secondObs");
+		
+		Observation groupObs = createObservation();
+		groupObs.setEncounter(new Reference("urn:uuid:encounter"));
+		groupObs.addHasMember(new Reference("urn:uuid:firstObs"));
+		Bundle.BundleEntryComponent groupObsEntry = createBundleEntry(groupObs, "urn:uuid:groupObs");
+		
+		entries.add(encounterEntry);
+		entries.add(groupObsEntry);
+		entries.add(firstObsEntry);
+		entries.add(secondObsEntry);
+		
+		try {
+			EncounterBundleEntriesHelper.orderEntriesByReference(entries);
+			fail("Expected circular reference to be reported");
+		}
+		catch (InvalidRequestException e) {
+			assertEquals("Circular reference detected between bundle entries [urn:uuid:firstObs, urn:uuid:secondObs]",
+			    e.getMessage());
+		}
+	}
+	
 	// Tests for resolveReferences method
 	
 	@Test
@@ -0,0 +1,54 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatientPhotoIndexTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldIndexPhotosFoundInDirectory() throws Exception {
+		tempFolder.newFile("patient-1.jpeg");
+		tempFolder.newFile("notes.txt");
+		PatientPhotoIndex index = new PatientPhotoIndex(tempFolder.getRoot(), ".jpeg", Long.MAX_VALUE);
+
+		assertTrue(index.hasPhoto("patient-1"));
+		assertFalse(index.hasPhoto("patient-2"));
+		assertFalse(index.hasPhoto("notes"));
+	}
+
+	@Test
+	public void shouldApplySavedAndDeletedPhotosWithoutListingDirectoryAgain() throws Exception {
+		PatientPhotoIndex index = new PatientPhotoIndex(tempFolder.getRoot(), ".jpeg", Long.MAX_VALUE);
+		assertFalse(index.hasPhoto("patient-1"));
+
+		tempFolder.newFile("patient-1.jpeg");
+		assertFalse(index.hasPhoto("patient-1"));
+
+		index.add("patient-1");
+		assertTrue(index.hasPhoto("patient-1"));
+
+		index.remove("patient-1");
+		assertFalse(index.hasPhoto("patient-1"));
+	}
+
+	@Test
+	public void shouldListDirectoryAgainWhenItHasChanged() throws Exception {
+		File directory = tempFolder.getRoot();
+		PatientPhotoIndex index = new PatientPhotoIndex(directory, ".jpeg", 0);
+		assertFalse(index.hasPhoto("patient-1"));
+
+		tempFolder.newFile("patient-1.jpeg");
+		directory.setLastModified(directory.lastModified() + 1000);
+
+		assertTrue(index.hasPhoto("patient-1"));
+	}
+}
@@ -0,0 +1,57 @@
+package org.bahmni.module.fhir2addlextension.api.helper;
+
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class ValueSetExpansionCacheTest {
+	
+	private static final String CONCEPT_UUID = "concept-uuid";
+	
+	private ValueSetExpansionCache expansionCache;
+	
+	private AtomicInteger expansionCount;
+	
+	@Before
+	public void setUp() {
+		expansionCache = new ValueSetExpansionCache(new ConcurrentMapCacheManager(ValueSetExpansionCache.CACHE_NAME));
+		expansionCount = new AtomicInteger();
+	}
+	
+	@Test
+	public void shouldExpandOncePerConceptAndLocale() {
+		ValueSet.ValueSetExpansionComponent first = expansionCache.get(CONCEPT_UUID, Locale.ENGLISH, this::expand);
+		ValueSet.ValueSetExpansionComponent second = expansionCache.get(CONCEPT_UUID, Locale.ENGLISH, this::expand);
+		expansionCache.get(CONCEPT_UUID, Locale.FRENCH, this::expand);
+		
+		assertEquals(2, expansionCount.get());
+		assertEquals(1, expansionCache.getHitCount());
+		assertEquals(2, expansionCache.getMissCount());
+		assertNotSame(first, second);
+		assertEquals(first.getContainsFirstRep().getCode(), second.getContainsFirstRep().getCode());
+	}
+	
+	@Test
+	public void shouldExpandAgainAfterClear() {
+		expansionCache.get(CONCEPT_UUID, Locale.ENGLISH, this::expand);
+		expansionCache.clear();
+		expansionCache.get(CONCEPT_UUID, Locale.ENGLISH, this::expand);
+		
+		assertEquals(2, expansionCount.get());
+		assertEquals(0, expansionCache.getHitCount());
+	}
+	
+	private ValueSet.ValueSetExpansionComponent expand() {
+		expansionCount.incrementAndGet();
+		ValueSet.ValueSetExpansionComponent expansion = new ValueSet.ValueSetExpansionComponent();
+		expansion.addContains().setCode("member-uuid");
+		return expansion;
+	}
+}
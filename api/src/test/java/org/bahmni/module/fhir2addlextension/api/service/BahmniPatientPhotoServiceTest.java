@@ -61,6 +61,18 @@ public class BahmniPatientPhotoServiceTest {
 		assertFalse(photoService.hasPhoto(patient));
 	}
 
+	@Test
+	public void hasPhoto_shouldAnswerFromPhotoIndexOnceImageDirectoryIsKnown() throws Exception {
+		org.openmrs.Patient patientWithPhoto = new org.openmrs.Patient();
+		patientWithPhoto.setUuid("patient-1");
+		org.openmrs.Patient patientWithoutPhoto = new org.openmrs.Patient();
+		patientWithoutPhoto.setUuid("patient-2");
+		mockEmrImageService(new PersonImageStub(tempFolder.newFile("patient-1.jpeg")));
+
+		assertTrue(photoService.hasPhoto(patientWithPhoto));
+		assertFalse(photoService.hasPhoto(patientWithoutPhoto));
+	}
+
 	// --- savePhoto ---
 
 	@Test
@@ -6,25 +6,34 @@ import ca.uhn.fhir.rest.api.PatchTypeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.IResourceProvider;
 import org.bahmni.module.fhir2addlextension.api.service.impl.FhirResourceHandlerImpl;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Reference;
 import org.junit.Assert;
 import org.junit.Test;
 import org.openmrs.module.fhir2.api.FhirEncounterService;
+import org.openmrs.module.fhir2.api.annotations.R4Provider;
 import org.openmrs.module.fhir2.api.search.param.EncounterSearchParams;
 import org.openmrs.module.fhir2.providers.r4.EncounterFhirResourceProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.util.ReflectionUtils;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class FhirResourceHandlerTest {
 	
 	@Test
@@ -76,6 +85,62 @@ public class FhirResourceHandlerTest {
 		}
 	}
 	
+	@Test
+	public void shouldDispatchRepeatedEntriesForSameProvider() {
+		Encounter encounter = new Encounter();
+		encounter.setId("tempEncounterId");
+		encounter.setSubject(new Reference("Patient/123"));
+		EncounterFhirResourceProvider resourceProvider = createEncounterResourceProvider(mockFhirEncounterService(encounter));
+		FhirResourceHandler resourceHandler = new FhirResourceHandlerImpl(FhirContext.forR4());
+		
+		for (int i = 0; i < 3; i++) {
+			Optional<MethodOutcome> created = resourceHandler.invokeResourceProvider(Bundle.HTTPVerb.POST, encounter,
+			    resourceProvider);
+			Optional<MethodOutcome> updated = resourceHandler.invokeResourceProvider(Bundle.HTTPVerb.PUT, encounter,
+			    resourceProvider);
+			Assert.assertTrue(created.isPresent());
+			Assert.assertTrue(created.get().getResource() instanceof Encounter);
+			Assert.assertTrue(updated.isPresent());
+			Assert.assertTrue(updated.get().getResource() instanceof Encounter);
+		}
+	}
+	
+	@Test
+	public void shouldReturnEmptyOutcomeForUnsupportedVerb() {
+		Encounter encounter = new Encounter();
+		encounter.setId("tempEncounterId");
+		EncounterFhirResourceProvider resourceProvider = createEncounterResourceProvider(mockFhirEncounterService(encounter));
+		FhirResourceHandler resourceHandler = new FhirResourceHandlerImpl(FhirContext.forR4());
+		
+		Optional<MethodOutcome> result = resourceHandler.invokeResourceProvider(Bundle.HTTPVerb.GET, encounter,
+		    resourceProvider);
+		
+		Assert.assertFalse(result.isPresent());
+	}
+	
+	@Test
+	public void shouldBindResourceProvidersOnContextRefresh() {
+		Encounter encounter = new Encounter();
+		encounter.setId("tempEncounterId");
+		encounter.setSubject(new Reference("Patient/123"));
+		EncounterFhirResourceProvider resourceProvider = createEncounterResourceProvider(mockFhirEncounterService(encounter));
+		ApplicationContext applicationContext = mock(ApplicationContext.class);
+		when(applicationContext.getBeanNamesForAnnotation(R4Provider.class)).thenReturn(
+		    new String[] { "encounterFhirR4ResourceProvider" });
+		when(applicationContext.getBeansOfType(IResourceProvider.class)).thenReturn(
+		    Collections.singletonMap("encounterFhirR4ResourceProvider", resourceProvider));
+		FhirResourceHandlerImpl resourceHandler = new FhirResourceHandlerImpl(FhirContext.forR4());
+		
+		resourceHandler.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+		
+		Assert.assertEquals(1, resourceHandler.getBoundResourceCount());
+		Assert.assertEquals(Optional.of(resourceProvider), resourceHandler.getResourceProvider(Encounter.class));
+		Assert.assertFalse(resourceHandler.getResourceProvider(Patient.class).isPresent());
+		Optional<MethodOutcome> methodOutcome = resourceHandler.invokeResourceProvider(Bundle.HTTPVerb.POST, encounter);
+		Assert.assertTrue(methodOutcome.isPresent());
+		Assert.assertTrue(methodOutcome.get().getResource() instanceof Encounter);
+	}
+	
 	private EncounterFhirResourceProvider createEncounterResourceProvider(FhirEncounterService fhirEncounterService) {
 		EncounterFhirResourceProvider encounterProvider = new EncounterFhirResourceProvider();
 		Field encounterServiceField = ReflectionUtils.findField(EncounterFhirResourceProvider.class, "encounterService");
@@ -20,6 +20,7 @@ import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirDiagnosticReportDa
 import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirServiceRequestDao;
 import org.bahmni.module.fhir2addlextension.api.model.FhirDiagnosticReportExt;
 import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirDiagnosticReportBundleService;
+import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirObservationService;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportBundleTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportTranslator;
 import org.bahmni.module.fhir2addlextension.api.translator.BahmniOrderReferenceTranslator;
@@ -68,12 +69,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.bahmni.module.fhir2addlextension.api.TestDataFactory.loadDiagnosticReportBundle;
@@ -85,8 +91,10 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyCollection;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -239,6 +247,55 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
         verify(bahmniFhirDiagnosticReportBundleTranslator, times(1)).toFhirResource(any(FhirDiagnosticReportExt.class));
     }
 	
+	@Test
+	public void shouldUpdateGroupMembersOfResultObservationsTogether() throws IOException {
+		BahmniFhirObservationService bahmniObservationService = mock(BahmniFhirObservationService.class);
+		BahmniFhirDiagnosticReportBundleService bundleService = new BahmniFhirDiagnosticReportBundleServiceImpl(
+		        bahmniFhirDiagnosticReportDao, bahmniFhirDiagnosticReportBundleTranslator, searchQueryInclude, searchQuery,
+		        new DiagnosticReportValidatorImpl(serviceRequestDao), new DiagnosticReportBundlePatchValidatorImpl(),
+		        new DiagnosticReportBundleUpdateValidatorImpl(), diagnosticReportTranslator,
+		        serviceRequestReferenceTranslator, patientReferenceTranslator, bahmniObservationService,
+		        fhirEncounterService, new LabResultsEncounterServiceImpl(appContext, visitService, encounterService,
+		                providerService));
+		Bundle reportBundle = loadDiagnosticReportBundle("example-diagnostic-report-bundle-with-encounter-reference-nested-results.json");
+		org.openmrs.Patient patient = examplePatient("fa2a71fd-895d-428f-8245-dcb4f0664b60");
+		Encounter encounter = exampleEncounter("81db700c-93f5-4b04-b9ae-d162a775da84", patient);
+		when(patientReferenceTranslator.toOpenmrsType(
+		    argThat(reference -> reference.getReference().equals("Patient/fa2a71fd-895d-428f-8245-dcb4f0664b60"))))
+		        .thenReturn(patient);
+		Order order = exampleOrder("99e8cb58-3d40-4d41-99b0-20449df8edac", patient, encounter);
+		when(serviceRequestReferenceTranslator.toOpenmrsType(
+		    argThat(reference -> reference.getReference().equals("ServiceRequest/99e8cb58-3d40-4d41-99b0-20449df8edac"))))
+		        .thenReturn(order);
+		final int[] counter = { 0 };
+		when(bahmniObservationService.createWithPendingGroupMembers(any(Observation.class), any())).thenAnswer(
+		    invocation -> {
+			    Observation argument = invocation.getArgument(0);
+			    ++counter[0];
+			    if (argument.hasHasMember()) {
+				    Map<Obs, Set<Obs>> pendingGroupMembers = invocation.getArgument(1);
+				    pendingGroupMembers.put(new Obs(counter[0]), new HashSet<>());
+			    }
+			    Observation mockedResponse = new Observation();
+			    mockedResponse.setId("result-observation-id-" + counter[0]);
+			    return mockedResponse;
+		    });
+		FhirDiagnosticReportExt mockedReport = new FhirDiagnosticReportExt();
+		mockedReport.setUuid("example-diagnostic-report");
+		when(bahmniFhirDiagnosticReportDao.createOrUpdate(any(FhirDiagnosticReportExt.class))).thenReturn(mockedReport);
+		when(diagnosticReportTranslator.toOpenmrsType(any(DiagnosticReport.class))).thenReturn(mockedReport);
+		when(fhirEncounterService.get("81db700c-93f5-4b04-b9ae-d162a775da84")).thenReturn(
+		    exampleFhirEncounterResource(encounter.getUuid()));
+		
+		bundleService.create(reportBundle);
+		
+		verify(bahmniObservationService, times(3)).createWithPendingGroupMembers(any(Observation.class), any());
+		verify(bahmniObservationService, never()).create(any(Observation.class));
+		verify(bahmniObservationService, times(1)).updateGroupMembers(argThat(pending -> !pending.isEmpty()));
+		verify(bahmniObservationService, times(1)).getExistingObservationIds(any());
+		verify(bahmniObservationService, never()).get(anyString());
+	}
+	
 	@Test
 	public void shouldCreateReportWithBundledEncounterResourceAndUpdateObservationEncounterReference() throws IOException {
 		Bundle reportBundle = loadDiagnosticReportBundle("example-diagnostic-report-bundle-with-encounter-resource.json");
@@ -508,7 +565,8 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		FhirDiagnosticReportExt existingReportEntity = new FhirDiagnosticReportExt();
 		existingReportEntity.setUuid(bundleUuid);
 		when(bahmniFhirDiagnosticReportDao.get(bundleUuid)).thenReturn(existingReportEntity);
-		// Mock get to return existing bundle
+		// Report only patch, the bundle is built for the response only
+		when(diagnosticReportTranslator.toFhirResource(existingReportEntity)).thenReturn(getReport(existingBundle));
 		when(bahmniFhirDiagnosticReportBundleTranslator.toFhirResource(any(FhirDiagnosticReportExt.class)))
 				.thenReturn(existingBundle);
 		
@@ -546,6 +604,7 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		verify(observationService, never()).create(any(Observation.class));
 		verify(bahmniFhirDiagnosticReportDao, times(1)).createOrUpdate(any(FhirDiagnosticReportExt.class));
 		Assert.assertEquals(1, capturedArgs.size());
+		verify(bahmniFhirDiagnosticReportBundleTranslator, times(1)).toFhirResource(updatedReport);
 	}
 	
 	@Test
@@ -560,9 +619,8 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		// Load patch that attempts to change patient
 		String patchBody = loadPatchJson("patch-diagnostic-bundle-invalid-patient-change.json");
 		
-		// Mock get to return existing bundle
-		when(bahmniFhirDiagnosticReportBundleTranslator.toFhirResource(any(FhirDiagnosticReportExt.class)))
-				.thenReturn(existingBundle);
+		// Report only patch, the bundle is not built
+		when(diagnosticReportTranslator.toFhirResource(existingReportEntity)).thenReturn(getReport(existingBundle));
 		
 		RequestDetails requestDetails = mock(RequestDetails.class);
 		when(requestDetails.getFhirContext()).thenReturn(ca.uhn.fhir.context.FhirContext.forR4());
@@ -587,9 +645,8 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		// Load patch that attempts to remove basedOn
 		String patchBody = loadPatchJson("patch-diagnostic-bundle-invalid-remove-basedon.json");
 		
-		// Mock get to return existing bundle
-		when(bahmniFhirDiagnosticReportBundleTranslator.toFhirResource(any(FhirDiagnosticReportExt.class)))
-				.thenReturn(existingBundle);
+		// Report only patch, the bundle is not built
+		when(diagnosticReportTranslator.toFhirResource(existingReportEntity)).thenReturn(getReport(existingBundle));
 		
 		RequestDetails requestDetails = mock(RequestDetails.class);
 		when(requestDetails.getFhirContext()).thenReturn(ca.uhn.fhir.context.FhirContext.forR4());
@@ -730,7 +787,7 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		verify(observationService, times(2)).create(any(Observation.class));
 		// Verify report was saved with preserved UUID
 		ArgumentCaptor<FhirDiagnosticReportExt> reportCaptor = ArgumentCaptor.forClass(FhirDiagnosticReportExt.class);
-		verify(bahmniFhirDiagnosticReportDao, times(2)).createOrUpdate(reportCaptor.capture());
+		verify(bahmniFhirDiagnosticReportDao, times(1)).createOrUpdate(reportCaptor.capture());
 		FhirDiagnosticReportExt capturedReport = reportCaptor.getValue();
 		assertEquals(bundleUuid, capturedReport.getUuid());
 		assertEquals(Integer.valueOf(12345), capturedReport.getId());
@@ -922,7 +979,7 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 		
 		// Verify UUID and ID are preserved
 		ArgumentCaptor<FhirDiagnosticReportExt> captor = ArgumentCaptor.forClass(FhirDiagnosticReportExt.class);
-		verify(bahmniFhirDiagnosticReportDao, times(2)).createOrUpdate(any(FhirDiagnosticReportExt.class));
+		verify(bahmniFhirDiagnosticReportDao, times(1)).createOrUpdate(any(FhirDiagnosticReportExt.class));
 //		verify(bahmniFhirDiagnosticReportDao).createOrUpdate(captor.capture());
 //		FhirDiagnosticReportExt captured = captor.getValue();
 //
@@ -930,8 +987,67 @@ public class BahmniFhirDiagnosticReportBundleServiceTest {
 //		assertEquals("DB ID should be preserved", existingDbId, captured.getId());
 	}
 	
+	@Test
+	public void shouldVoidReplacedResultsTogether() throws IOException {
+		BahmniFhirObservationService bahmniObservationService = mock(BahmniFhirObservationService.class);
+		BahmniFhirDiagnosticReportBundleService bundleService = new BahmniFhirDiagnosticReportBundleServiceImpl(
+		        bahmniFhirDiagnosticReportDao, bahmniFhirDiagnosticReportBundleTranslator, searchQueryInclude, searchQuery,
+		        new DiagnosticReportValidatorImpl(serviceRequestDao), new DiagnosticReportBundlePatchValidatorImpl(),
+		        new DiagnosticReportBundleUpdateValidatorImpl(), diagnosticReportTranslator,
+		        serviceRequestReferenceTranslator, patientReferenceTranslator, bahmniObservationService,
+		        fhirEncounterService, new LabResultsEncounterServiceImpl(appContext, visitService, encounterService,
+		                providerService));
+		Bundle existingBundle = loadDiagnosticReportBundle("diagnostic-report-bundle-for-patch-existing.json");
+		String bundleUuid = "report-bundle-123";
+		Bundle updatedBundle = loadDiagnosticReportBundle("update-diagnostic-bundle-valid-replacement.json");
+		
+		FhirDiagnosticReportExt existingReport = new FhirDiagnosticReportExt();
+		existingReport.setUuid(bundleUuid);
+		existingReport.setId(12345);
+		Set<Obs> results = new HashSet<>();
+		for (String obsUuid : Arrays.asList("obs-1", "obs-2", "obs-3")) {
+			Obs obs = new Obs();
+			obs.setUuid(obsUuid);
+			results.add(obs);
+		}
+		existingReport.setResults(results);
+		when(bahmniFhirDiagnosticReportDao.get(bundleUuid)).thenReturn(existingReport);
+		when(bahmniFhirDiagnosticReportBundleTranslator.toFhirResource(any(FhirDiagnosticReportExt.class)))
+		        .thenReturn(existingBundle);
+		
+		org.openmrs.Patient patient = examplePatient("patient-uuid-1");
+		Encounter encounter = exampleEncounter("encounter-uuid-1", patient);
+		when(serviceRequestReferenceTranslator.toOpenmrsType(any(Reference.class)))
+		        .thenReturn(exampleOrder("new-order-uuid-1", patient, encounter));
+		when(bahmniObservationService.createWithPendingGroupMembers(any(Observation.class), any()))
+		        .thenAnswer(invocation -> {
+			        Observation obs = new Observation();
+			        obs.setId("new-obs");
+			        return obs;
+		        });
+		when(bahmniFhirDiagnosticReportDao.createOrUpdate(any(FhirDiagnosticReportExt.class))).thenReturn(existingReport);
+		when(diagnosticReportTranslator.toOpenmrsType(any(FhirDiagnosticReportExt.class), any(DiagnosticReport.class)))
+		        .thenReturn(existingReport);
+		List<Set<String>> voidedObsUuids = new ArrayList<>();
+		doAnswer(invocation -> {
+			Collection<Obs> voidedObs = invocation.getArgument(0);
+			voidedObsUuids.add(voidedObs.stream().map(Obs::getUuid).collect(Collectors.toSet()));
+			return null;
+		}).when(bahmniObservationService).voidObservations(anyCollection());
+		
+		bundleService.update(bundleUuid, updatedBundle);
+		
+		assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("obs-1", "obs-2", "obs-3"))), voidedObsUuids);
+		verify(bahmniObservationService, never()).delete(anyString());
+		verify(bahmniFhirDiagnosticReportDao, times(1)).createOrUpdate(any(FhirDiagnosticReportExt.class));
+	}
+	
 	// ========== ^ UPDATE (PUT) TESTS ^ ==========
 	
+	private DiagnosticReport getReport(Bundle bundle) {
+		return BahmniFhirUtils.findResourcesOfTypeInBundle(bundle, DiagnosticReport.class).get(0);
+	}
+	
 	private String loadPatchJson(String filename) throws IOException {
 		InputStream inputStream = getClass().getClassLoader().getResourceAsStream(filename);
 		Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A");
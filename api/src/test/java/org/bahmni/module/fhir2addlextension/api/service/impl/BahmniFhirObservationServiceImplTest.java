@@ -4,7 +4,9 @@ import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.bahmni.module.fhir2addlextension.api.context.RequestContextHolder;
+import org.bahmni.module.fhir2addlextension.api.service.BahmniFhirObservationService;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Observation;
@@ -13,17 +15,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirObservationService;
 import org.openmrs.module.fhir2.api.search.param.ObservationSearchParams;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -113,4 +119,28 @@ public class BahmniFhirObservationServiceImplTest {
 		assertNotNull(result.getMeta().getLastUpdated());
 	}
 	
+	@Test
+	public void findExistingObservationIds_shouldLookUpIdsTogetherWithBahmniObservationService() {
+		List<String> observationIds = Arrays.asList("obs-uuid-1", "obs-uuid-2");
+		doReturn(Collections.singleton("obs-uuid-1")).when(observationService).getExistingObservationIds(observationIds);
+		
+		Set<String> result = BahmniFhirObservationService.findExistingObservationIds(observationService, observationIds);
+		
+		assertEquals(Collections.singleton("obs-uuid-1"), result);
+		verify(observationService, never()).get(any(String.class));
+	}
+	
+	@Test
+	public void findExistingObservationIds_shouldGetEachObservationWithOtherObservationServices() {
+		FhirObservationService fhirObservationService = mock(FhirObservationService.class);
+		Observation existingObservation = new Observation();
+		existingObservation.setId("obs-uuid-1");
+		when(fhirObservationService.get("obs-uuid-1")).thenReturn(existingObservation);
+		when(fhirObservationService.get("obs-uuid-2")).thenThrow(new ResourceNotFoundException("Not found"));
+		
+		Set<String> result = BahmniFhirObservationService.findExistingObservationIds(fhirObservationService,
+		    Arrays.asList("obs-uuid-1", "obs-uuid-2"));
+		
+		assertEquals(Collections.singleton("obs-uuid-1"), result);
+	}
 }
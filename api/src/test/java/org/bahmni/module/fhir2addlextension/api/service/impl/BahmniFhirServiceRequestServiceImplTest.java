@@ -58,6 +58,7 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants.NUMBER_OF_VISITS_SEARCH_HANDLER;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -70,6 +71,7 @@ import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.openmrs.module.fhir2.FhirConstants.CATEGORY_SEARCH_HANDLER;
 import static org.openmrs.module.fhir2.FhirConstants.CODED_SEARCH_HANDLER;
@@ -551,15 +553,11 @@ public class BahmniFhirServiceRequestServiceImplTest {
 		HashSet<Include> includes = new HashSet<>();
 		includes.add(new Include("ServiceRequest:patient"));
 		
-		// Setup mock DAO response for encounter references
-		ReferenceAndListParam encounterReferences = new ReferenceAndListParam()
-				.addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(ENCOUNTER_UUID)));
-		when(dao.getEncounterReferencesByNumberOfVisit(eq(numberOfVisits), eq(patientReference)))
-				.thenReturn(encounterReferences);
-		
 		// Create expected search parameter map
 		SearchParameterMap expectedParams = new SearchParameterMap()
-				.addParameter(ENCOUNTER_REFERENCE_SEARCH_HANDLER, encounterReferences)
+				.addParameter(PATIENT_REFERENCE_SEARCH_HANDLER,
+				    new ReferenceAndListParam().addAnd(new ReferenceOrListParam().add(patientReference)))
+				.addParameter(NUMBER_OF_VISITS_SEARCH_HANDLER, numberOfVisits)
 				.addParameter(CATEGORY_SEARCH_HANDLER, category)
 				.addParameter(INCLUDE_SEARCH_HANDLER, includes);
 		if (sort != null) {
@@ -582,7 +580,10 @@ public class BahmniFhirServiceRequestServiceImplTest {
 		verify(searchQuery).getQueryResults(mapCaptor.capture(), eq(dao), eq(translator), eq(searchQueryInclude));
 		
 		SearchParameterMap actualMap = mapCaptor.getValue();
-		assertEquals(encounterReferences, actualMap.getParameters(ENCOUNTER_REFERENCE_SEARCH_HANDLER).get(0).getParam());
+		ReferenceAndListParam actualPatientReference = (ReferenceAndListParam) actualMap
+				.getParameters(PATIENT_REFERENCE_SEARCH_HANDLER).get(0).getParam();
+		assertEquals(patientReference, actualPatientReference.getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0));
+		assertEquals(numberOfVisits, actualMap.getParameters(NUMBER_OF_VISITS_SEARCH_HANDLER).get(0).getParam());
 		assertEquals(category, actualMap.getParameters(CATEGORY_SEARCH_HANDLER).get(0).getParam());
 		assertEquals(sort, actualMap.getSortSpec());
 		assertEquals(includes, actualMap.getParameters(INCLUDE_SEARCH_HANDLER).get(0).getParam());
@@ -602,26 +603,15 @@ public class BahmniFhirServiceRequestServiceImplTest {
 	}
 	
 	@Test
-	public void searchForServiceRequestsByNumberOfVisits_shouldReturnNullWhenNoEncountersFound() {
-		// Setup test parameters
+	public void searchForServiceRequestsByNumberOfVisits_shouldSearchInSingleQueryWithoutResolvingEncountersFirst() {
 		ReferenceParam patientReference = new ReferenceParam().setValue(PATIENT_GIVEN_NAME);
 		NumberParam numberOfVisits = new NumberParam(3);
 		
-		// Mock DAO to return null for encounter references
-		when(dao.getEncounterReferencesByNumberOfVisit(eq(numberOfVisits), eq(patientReference))).thenReturn(null);
-		
-		// Call the method under test
-		IBundleProvider results = serviceRequestService.searchForServiceRequestsByNumberOfVisits(patientReference,
-		    numberOfVisits, null, null, null, null);
-		
-		// Verify results
-		assertThat(results, nullValue());
-		
-		// Verify DAO was called with correct parameters
-		verify(dao).getEncounterReferencesByNumberOfVisit(eq(numberOfVisits), eq(patientReference));
+		serviceRequestService.searchForServiceRequestsByNumberOfVisits(patientReference, numberOfVisits, null, null, null,
+		    null);
 		
-		// Verify searchQuery was not called
-		verify(searchQuery, times(0)).getQueryResults(any(), any(), any(), any());
+		verify(searchQuery).getQueryResults(any(), eq(dao), eq(translator), eq(searchQueryInclude));
+		verifyNoInteractions(dao);
 	}
 	
 	@Test
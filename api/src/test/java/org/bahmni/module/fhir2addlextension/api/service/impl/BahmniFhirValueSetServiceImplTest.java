@@ -6,14 +6,22 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
+import org.bahmni.module.fhir2addlextension.api.dao.ConceptSetMemberDao;
+import org.bahmni.module.fhir2addlextension.api.helper.ValueSetExpansionCache;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,6 +59,12 @@ public class BahmniFhirValueSetServiceImplTest {
 	@Mock
 	private ValueSetTranslator valueSetTranslator;
 	
+	@Mock
+	private ValueSetExpansionCache expansionCache;
+	
+	@Mock
+	private ConceptSetMemberDao conceptSetMemberDao;
+	
 	private BahmniFhirValueSetServiceImpl valueSetService;
 	
 	private ValueSet baseValueSet;
@@ -61,8 +75,24 @@ public class BahmniFhirValueSetServiceImplTest {
 		mockStatic(LocaleUtility.class);
 		when(LocaleUtility.getLocalesInOrder()).thenReturn(MOCK_LOCALES);
 		
+		when(expansionCache.get(any(), any(), any())).thenAnswer(
+		    invocation -> ((Supplier<ValueSet.ValueSetExpansionComponent>) invocation.getArgument(2)).get());
+		when(conceptSetMemberDao.getSetMembers(anyCollection())).thenAnswer(invocation -> {
+			Collection<Concept> conceptSets = invocation.getArgument(0);
+			Map<String, List<Concept>> setMembers = new HashMap<>();
+			for (Concept conceptSet : conceptSets) {
+				Collection<Concept> members = conceptSet.getSetMembers();
+				if (members != null && !members.isEmpty()) {
+					setMembers.put(conceptSet.getUuid(), new ArrayList<>(members));
+				}
+			}
+			return setMembers;
+		});
+		
 		valueSetService = new BahmniFhirValueSetServiceImpl();
 		valueSetService.setConceptService(conceptService);
+		valueSetService.setExpansionCache(expansionCache);
+		valueSetService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// Setup base ValueSet
 		baseValueSet = new ValueSet();
@@ -99,6 +129,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -128,6 +160,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When/Then - Should throw RuntimeException
 		spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -146,6 +180,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When/Then - Should throw RuntimeException
 		spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -180,6 +216,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -226,6 +264,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -266,6 +306,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -309,6 +351,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -349,6 +393,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -390,6 +436,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -444,6 +492,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		when(valueSetTranslator.toFhirResource(filteredConcept)).thenReturn(translatedValueSet);
 		
@@ -524,6 +574,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -565,6 +617,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		// When
 		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
@@ -615,6 +669,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		when(valueSetTranslator.toFhirResource(filteredConcept)).thenReturn(translatedValueSet);
 		
@@ -661,6 +717,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		when(valueSetTranslator.toFhirResource(leafConcept)).thenReturn(translatedValueSet);
 		
@@ -723,6 +781,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		when(valueSetTranslator.toFhirResource(rootConcept)).thenReturn(translatedValueSet);
 		
@@ -783,6 +843,8 @@ public class BahmniFhirValueSetServiceImplTest {
 			}
 		};
 		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
 		
 		when(valueSetTranslator.toFhirResource(parentConcept)).thenReturn(translatedValueSet);
 		
@@ -796,4 +858,53 @@ public class BahmniFhirValueSetServiceImplTest {
 		assertThat(retiredComponent.getCode(), equalTo("retired-child-uuid"));
 		assertThat(retiredComponent.getInactive(), equalTo(true));
 	}
+	
+	@Test
+	public void shouldLoadSetMembersPerLevelAndSkipCyclesWithinBranch() {
+		Concept parentConcept = createConcept(PARENT_CONCEPT_UUID);
+		Concept childConcept = createConcept(CHILD_CONCEPT_UUID);
+		Concept grandChildConcept = createConcept("grand-child-uuid");
+		when(conceptService.getConceptByUuid(PARENT_CONCEPT_UUID)).thenReturn(parentConcept);
+		
+		Map<String, List<Concept>> setMembers = new HashMap<>();
+		setMembers.put(PARENT_CONCEPT_UUID, Collections.singletonList(childConcept));
+		setMembers.put(CHILD_CONCEPT_UUID, Arrays.asList(grandChildConcept, parentConcept));
+		setMembers.put("grand-child-uuid", Collections.singletonList(childConcept));
+		when(conceptSetMemberDao.getSetMembers(anyCollection())).thenAnswer(invocation -> {
+			Collection<Concept> conceptSets = invocation.getArgument(0);
+			Map<String, List<Concept>> levelSetMembers = new HashMap<>();
+			conceptSets.forEach(conceptSet -> levelSetMembers.put(conceptSet.getUuid(), setMembers.get(conceptSet.getUuid())));
+			return levelSetMembers;
+		});
+		
+		BahmniFhirValueSetServiceImpl spyService = new BahmniFhirValueSetServiceImpl() {
+			
+			@Override
+			public ValueSet get(String uuid) {
+				return baseValueSet;
+			}
+		};
+		spyService.setConceptService(conceptService);
+		spyService.setExpansionCache(expansionCache);
+		spyService.setConceptSetMemberDao(conceptSetMemberDao);
+		
+		ValueSet result = spyService.expandedValueSet(PARENT_CONCEPT_UUID);
+		
+		ValueSet.ValueSetExpansionContainsComponent childComponent = result.getExpansion().getContains().get(0);
+		assertThat(result.getExpansion().getContains(), hasSize(1));
+		assertThat(childComponent.getCode(), equalTo(CHILD_CONCEPT_UUID));
+		assertThat(childComponent.getContains(), hasSize(1));
+		assertThat(childComponent.getContains().get(0).getCode(), equalTo("grand-child-uuid"));
+		assertThat(childComponent.getContains().get(0).getContains(), hasSize(0));
+		org.mockito.Mockito.verify(conceptSetMemberDao, org.mockito.Mockito.times(3)).getSetMembers(anyCollection());
+		org.mockito.Mockito.verify(parentConcept, org.mockito.Mockito.never()).getSetMembers();
+	}
+	
+	private Concept createConcept(String uuid) {
+		Concept concept = org.mockito.Mockito.mock(Concept.class);
+		when(concept.getUuid()).thenReturn(uuid);
+		when(concept.getDisplayString()).thenReturn(uuid);
+		when(concept.getConceptClass()).thenReturn(conceptClass);
+		return concept;
+	}
 }
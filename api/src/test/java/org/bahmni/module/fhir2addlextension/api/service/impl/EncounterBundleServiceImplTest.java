@@ -1,11 +1,17 @@
 package org.bahmni.module.fhir2addlextension.api.service.impl;
 
+import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import org.bahmni.module.fhir2addlextension.api.service.FhirResourceHandler;
 import org.bahmni.module.fhir2addlextension.api.validators.EncounterBundleValidator;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Condition;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Reference;
 import org.junit.Before;
@@ -13,12 +19,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.Obs;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -34,13 +49,26 @@ public class EncounterBundleServiceImplTest {
 	@Mock
 	private IResourceProvider resourceProvider;
 	
+	@Mock
+	private SessionFactory sessionFactory;
+	
+	@Mock
+	private Session session;
+	
+	@Mock
+	private SessionImplementor sessionImplementor;
+	
+	@Mock
+	private PersistenceContext persistenceContext;
+	
 	private EncounterBundleServiceImpl encounterBundleService;
 	
 	private Bundle validBundle;
 	
 	@Before
 	public void setup() {
-		encounterBundleService = new EncounterBundleServiceImpl(resourceHandler, encounterBundleValidator);
+		encounterBundleService = new EncounterBundleServiceImpl(resourceHandler, encounterBundleValidator,
+		        FhirContext.forR4(), sessionFactory);
 		
 		Encounter encounter = new Encounter();
 		encounter.setId("enc-123");
@@ -129,4 +157,160 @@ public class EncounterBundleServiceImplTest {
 		    () -> encounterBundleService.create(validBundle));
 		assertTrue(result.getMessage().contains("Error occurred while processing bundle entry"));
 	}
+	
+	@Test
+	public void shouldStreamResponseEntriesWhenIngestingBundle() {
+		Condition condition = new Condition();
+		condition.setEncounter(new Reference("urn:uuid:enc-123"));
+		validBundle.addEntry().setFullUrl("urn:uuid:condition-123").setResource(condition)
+		        .setRequest(new Bundle.BundleEntryRequestComponent().setMethod(Bundle.HTTPVerb.POST).setUrl("Condition"));
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId("created-enc-123");
+		Condition createdCondition = new Condition();
+		createdCondition.setId("created-condition-123");
+		when(resourceHandler.getResourceProvider(any())).thenReturn(Optional.of(resourceProvider));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Encounter.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdEncounter)));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Condition.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdCondition)));
+		
+		ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+		encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		    responseStream);
+		
+		Bundle response = FhirContext.forR4().newJsonParser().parseResource(Bundle.class,
+		    new String(responseStream.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(Bundle.BundleType.TRANSACTIONRESPONSE, response.getType());
+		assertEquals(2, response.getEntry().size());
+		assertEquals("201", response.getEntry().get(1).getResponse().getStatus());
+		verify(resourceHandler).invokeResourceProvider(eq(Bundle.HTTPVerb.POST),
+		    argThat((Condition created) -> "Encounter/created-enc-123".equals(created.getEncounter().getReference())));
+		verify(encounterBundleValidator).validateEncounterEntryCount(1);
+	}
+	
+	@Test
+	public void shouldRejectIngestedEntryReferencingMissingEntry() {
+		Condition condition = new Condition();
+		condition.setEncounter(new Reference("urn:uuid:missing-encounter"));
+		validBundle.getEntry().get(0).setResource(condition);
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		
+		InvalidRequestException result = assertThrows(InvalidRequestException.class,
+		    () -> encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		        new ByteArrayOutputStream()));
+		assertTrue(result.getMessage().contains("urn:uuid:enc-123"));
+	}	
+	@Test
+	public void shouldValidateBundleTypeFollowingEntriesOnce() {
+		validBundle.setType(null);
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		bundleJson = bundleJson.substring(0, bundleJson.lastIndexOf('}')) + ",\"type\":\"transaction\"}";
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId("created-enc-123");
+		when(resourceHandler.getResourceProvider(any())).thenReturn(Optional.of(resourceProvider));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Encounter.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdEncounter)));
+		
+		encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		    new ByteArrayOutputStream());
+		
+		verify(encounterBundleValidator, times(1)).validateBundleType(any(Bundle.BundleType.class));
+		verify(encounterBundleValidator).validateBundleType(Bundle.BundleType.TRANSACTION);
+	}
+	
+	@Test
+	public void shouldEvictWrittenObjectsWhileIngestingBundle() {
+		for (int i = 0; i < EncounterBundleServiceImpl.SESSION_FLUSH_INTERVAL; i++) {
+			Condition condition = new Condition();
+			condition.setEncounter(new Reference("urn:uuid:enc-123"));
+			validBundle.addEntry().setFullUrl("urn:uuid:condition-" + i).setResource(condition).setRequest(
+			    new Bundle.BundleEntryRequestComponent().setMethod(Bundle.HTTPVerb.POST).setUrl("Condition"));
+		}
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId("created-enc-123");
+		when(resourceHandler.getResourceProvider(any())).thenReturn(Optional.of(resourceProvider));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Encounter.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdEncounter)));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Condition.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(new Condition())));
+		Obs writtenObs = new Obs();
+		Concept loadedConcept = new Concept();
+		loadedConcept.setDateCreated(new Date(0));
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		when(session.unwrap(SessionImplementor.class)).thenReturn(sessionImplementor);
+		when(sessionImplementor.getPersistenceContext()).thenReturn(persistenceContext);
+		when(persistenceContext.reentrantSafeEntityEntries()).thenAnswer(invocation -> {
+			writtenObs.setDateCreated(new Date());
+			return new Map.Entry[] { new AbstractMap.SimpleEntry<>(writtenObs, null),
+			        new AbstractMap.SimpleEntry<>(loadedConcept, null) };
+		});
+		when(session.contains(writtenObs)).thenReturn(true);
+		
+		encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		    new ByteArrayOutputStream());
+		
+		verify(session, times(1)).flush();
+		verify(session).evict(writtenObs);
+		verify(session, never()).evict(loadedConcept);
+		verify(session, never()).clear();
+	}
+	
+	@Test
+	public void shouldProcessBufferedEntryOnceReferencedEntryIsIngested() {
+		Condition condition = new Condition();
+		condition.setEncounter(new Reference("urn:uuid:enc-123"));
+		Bundle.BundleEntryComponent conditionEntry = new Bundle.BundleEntryComponent().setFullUrl("urn:uuid:condition-123")
+		        .setResource(condition)
+		        .setRequest(new Bundle.BundleEntryRequestComponent().setMethod(Bundle.HTTPVerb.POST).setUrl("Condition"));
+		validBundle.getEntry().add(0, conditionEntry);
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId("created-enc-123");
+		Condition createdCondition = new Condition();
+		createdCondition.setId("created-condition-123");
+		when(resourceHandler.getResourceProvider(any())).thenReturn(Optional.of(resourceProvider));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Encounter.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdEncounter)));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Condition.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdCondition)));
+		ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+		
+		encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		    responseStream);
+		
+		Bundle response = FhirContext.forR4().newJsonParser().parseResource(Bundle.class,
+		    new String(responseStream.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(2, response.getEntry().size());
+		assertEquals("created-enc-123", response.getEntry().get(0).getResource().getIdElement().getIdPart());
+		assertEquals("created-condition-123", response.getEntry().get(1).getResource().getIdElement().getIdPart());
+		verify(resourceHandler).invokeResourceProvider(eq(Bundle.HTTPVerb.POST),
+		    argThat((Condition created) -> "Encounter/created-enc-123".equals(created.getEncounter().getReference())));
+	}
+	
+	@Test
+	public void shouldNotWriteAnyResponseEntryWhenIngestionFails() {
+		Condition condition = new Condition();
+		condition.setEncounter(new Reference("urn:uuid:enc-123"));
+		validBundle.addEntry().setFullUrl("urn:uuid:condition-123").setResource(condition)
+		        .setRequest(new Bundle.BundleEntryRequestComponent().setMethod(Bundle.HTTPVerb.POST).setUrl("Condition"));
+		String bundleJson = FhirContext.forR4().newJsonParser().encodeResourceToString(validBundle);
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId("created-enc-123");
+		when(resourceHandler.getResourceProvider(any())).thenReturn(Optional.of(resourceProvider));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Encounter.class))).thenReturn(
+		    Optional.of(new MethodOutcome().setResource(createdEncounter)));
+		when(resourceHandler.invokeResourceProvider(eq(Bundle.HTTPVerb.POST), any(Condition.class))).thenThrow(
+		    new InvalidRequestException("Invalid condition"));
+		ByteArrayOutputStream responseStream = new ByteArrayOutputStream();
+		
+		InvalidRequestException result = assertThrows(InvalidRequestException.class,
+		    () -> encounterBundleService.ingest(new ByteArrayInputStream(bundleJson.getBytes(StandardCharsets.UTF_8)),
+		        responseStream));
+		
+		assertTrue(result.getMessage().contains("Invalid condition"));
+		assertEquals(0, responseStream.size());
+	}
 }
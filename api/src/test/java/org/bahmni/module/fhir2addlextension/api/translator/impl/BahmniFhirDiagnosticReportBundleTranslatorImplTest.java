@@ -0,0 +1,139 @@
+package org.bahmni.module.fhir2addlextension.api.translator.impl;
+
+import org.bahmni.module.fhir2addlextension.api.context.RequestContextHolder;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniObsDao;
+import org.bahmni.module.fhir2addlextension.api.model.FhirDiagnosticReportExt;
+import org.bahmni.module.fhir2addlextension.api.translator.BahmniFhirDiagnosticReportTranslator;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DiagnosticReport;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Obs;
+import org.openmrs.Provider;
+import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.translators.PractitionerReferenceTranslator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BahmniFhirDiagnosticReportBundleTranslatorImplTest {
+
+	private static final String SERVER_BASE = "https://localhost/openmrs/ws/fhir2/R4";
+
+	@Mock
+	private BahmniFhirDiagnosticReportTranslator diagnosticReportTranslator;
+
+	@Mock
+	private ObservationTranslator observationTranslator;
+
+	@Mock
+	private PractitionerReferenceTranslator<Provider> providerReferenceTranslator;
+
+	@Mock
+	private BahmniObsDao obsDao;
+
+	private BahmniFhirDiagnosticReportBundleTranslatorImpl translator;
+
+	private FhirDiagnosticReportExt report;
+
+	private DiagnosticReport diagnosticReport;
+
+	@Before
+	public void setUp() {
+		translator = new BahmniFhirDiagnosticReportBundleTranslatorImpl(diagnosticReportTranslator, observationTranslator,
+		        providerReferenceTranslator, obsDao);
+
+		report = new FhirDiagnosticReportExt();
+		report.setUuid("report-uuid");
+		diagnosticReport = new DiagnosticReport();
+		diagnosticReport.setId("report-uuid");
+		when(diagnosticReportTranslator.toFhirResource(report)).thenReturn(diagnosticReport);
+	}
+
+	@After
+	public void tearDown() {
+		RequestContextHolder.clear();
+	}
+
+	@Test
+	public void shouldPrefetchResultsBeforeTranslatingThem() {
+		Obs member = createObs(2, "member-uuid");
+		Obs panel = createObs(1, "panel-uuid");
+		panel.addGroupMember(member);
+		report.setResults(Collections.singleton(panel));
+		translateObsByUuid();
+
+		Bundle bundle = translator.toFhirResource(report);
+
+		assertEquals("report-uuid", bundle.getIdElement().getIdPart());
+		assertEquals(Bundle.BundleType.COLLECTION, bundle.getType());
+		assertEquals(3, bundle.getEntry().size());
+		assertSame(diagnosticReport, bundle.getEntry().get(0).getResource());
+		assertEquals("member-uuid", bundle.getEntry().get(1).getResource().getId());
+		assertEquals("panel-uuid", bundle.getEntry().get(2).getResource().getId());
+		assertEquals(Arrays.asList("urn:uuid:report-uuid", "urn:uuid:member-uuid", "urn:uuid:panel-uuid"),
+		    Arrays.asList(bundle.getEntry().get(0).getFullUrl(), bundle.getEntry().get(1).getFullUrl(),
+		        bundle.getEntry().get(2).getFullUrl()));
+
+		InOrder inOrder = inOrder(obsDao, observationTranslator);
+		inOrder.verify(obsDao).prefetchForTranslation(report.getResults());
+		inOrder.verify(observationTranslator).toFhirResource(member);
+		inOrder.verify(observationTranslator).toFhirResource(panel);
+	}
+
+	@Test
+	public void shouldAddEachResultWithFullUrlOnServerBase() {
+		RequestContextHolder.setValue(SERVER_BASE);
+		Obs hemoglobin = createObs(1, "hemoglobin-uuid");
+		Obs platelets = createObs(2, "platelets-uuid");
+		report.setResults(new LinkedHashSet<>(Arrays.asList(hemoglobin, platelets)));
+		translateObsByUuid();
+
+		Bundle bundle = translator.toFhirResource(report);
+
+		assertEquals(3, bundle.getEntry().size());
+		assertEquals(SERVER_BASE + "/DiagnosticReport/report-uuid", bundle.getEntry().get(0).getFullUrl());
+		assertEquals(SERVER_BASE + "/Observation/hemoglobin-uuid", bundle.getEntry().get(1).getFullUrl());
+		assertEquals(SERVER_BASE + "/Observation/platelets-uuid", bundle.getEntry().get(2).getFullUrl());
+		verify(obsDao).prefetchForTranslation(report.getResults());
+	}
+
+	@Test
+	public void shouldOnlyAddReportWhenItHasNoResults() {
+		report.setResults(Collections.emptySet());
+
+		Bundle bundle = translator.toFhirResource(report);
+
+		assertEquals(1, bundle.getEntry().size());
+		assertSame(diagnosticReport, bundle.getEntry().get(0).getResource());
+	}
+
+	private void translateObsByUuid() {
+		when(observationTranslator.toFhirResource(any(Obs.class))).thenAnswer(invocation -> {
+			Observation observation = new Observation();
+			observation.setId(((Obs) invocation.getArgument(0)).getUuid());
+			return observation;
+		});
+	}
+
+	private Obs createObs(int obsId, String uuid) {
+		Obs obs = new Obs(obsId);
+		obs.setUuid(uuid);
+		return obs;
+	}
+}
@@ -15,13 +15,19 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.bahmni.module.fhir2addlextension.api.BahmniFhirConstants;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirMedicationRequestDao;
 
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Dosage;
@@ -67,6 +73,9 @@ public class BahmniMedicationRequestTranslatorImplTest {
 	@Mock
 	private OrderService orderService;
 	
+	@Mock
+	private BahmniFhirMedicationRequestDao medicationRequestDao;
+	
 	@Mock
 	private CareSetting outpatientCareSetting;
 	
@@ -671,4 +680,48 @@ public class BahmniMedicationRequestTranslatorImplTest {
 		// dateStopped extension should still be set
 		assertThat(result.getExtensionByUrl(BahmniFhirConstants.FHIR_EXT_MEDICATION_REQUEST_DATE_STOPPED), not(nullValue()));
 	}
+	
+	@Test
+	public void toFhirResources_givenStoppedOrders_shouldLookUpDiscontinuationOrdersTogether() {
+		DrugOrder originalOrder = org.mockito.Mockito.spy(new DrugOrder(10));
+		originalOrder.setDrug(new org.openmrs.Drug());
+		originalOrder.setPatient(new org.openmrs.Patient());
+		when(originalOrder.getDateStopped()).thenReturn(new Date());
+		
+		DrugOrder discontinuationOrder = new DrugOrder();
+		discontinuationOrder.setAction(Order.Action.DISCONTINUE);
+		discontinuationOrder.setPreviousOrder(originalOrder);
+		discontinuationOrder.setOrderReasonNonCoded("Course completed");
+		Map<Integer, Order> discontinuationOrders = new HashMap<>();
+		discontinuationOrders.put(10, discontinuationOrder);
+		when(medicationRequestDao.getDiscontinuationOrders(Collections.singletonList(originalOrder))).thenReturn(
+		    discontinuationOrders);
+		
+		List<MedicationRequest> result = translator.toFhirResources(Collections.singletonList(originalOrder));
+		
+		assertThat(result.size(), equalTo(1));
+		assertThat(result.get(0).getStatusReason().getText(), equalTo("Course completed"));
+		verify(orderService, never()).getDiscontinuationOrder(any());
+	}
+	
+	@Test
+	public void toFhirResource_givenStoppedOrderTranslatedInEarlierPage_shouldLookUpItsCurrentDiscontinuationOrder() {
+		DrugOrder originalOrder = org.mockito.Mockito.spy(new DrugOrder(10));
+		originalOrder.setDrug(new org.openmrs.Drug());
+		originalOrder.setPatient(new org.openmrs.Patient());
+		when(originalOrder.getDateStopped()).thenReturn(new Date());
+		when(medicationRequestDao.getDiscontinuationOrders(Collections.singletonList(originalOrder))).thenReturn(
+		    Collections.singletonMap(10, null));
+		translator.toFhirResources(Collections.singletonList(originalOrder));
+		
+		DrugOrder discontinuationOrder = new DrugOrder();
+		discontinuationOrder.setAction(Order.Action.DISCONTINUE);
+		discontinuationOrder.setPreviousOrder(originalOrder);
+		discontinuationOrder.setOrderReasonNonCoded("Patient request");
+		when(orderService.getDiscontinuationOrder(originalOrder)).thenReturn(discontinuationOrder);
+		
+		MedicationRequest result = translator.toFhirResource(originalOrder);
+		
+		assertThat(result.getStatusReason().getText(), equalTo("Patient request"));
+	}
 }
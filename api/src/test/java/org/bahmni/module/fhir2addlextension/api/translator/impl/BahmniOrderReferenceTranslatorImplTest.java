@@ -0,0 +1,89 @@
+package org.bahmni.module.fhir2addlextension.api.translator.impl;
+
+import org.bahmni.module.fhir2addlextension.api.context.ReferenceResolutionContextHolder;
+import org.bahmni.module.fhir2addlextension.api.dao.BahmniFhirServiceRequestDao;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Order;
+import org.openmrs.module.fhir2.api.dao.FhirMedicationRequestDao;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BahmniOrderReferenceTranslatorImplTest {
+	
+	@Mock
+	private BahmniFhirServiceRequestDao<Order> serviceRequestDao;
+	
+	@Mock
+	private FhirMedicationRequestDao medicationRequestDao;
+	
+	private BahmniOrderReferenceTranslatorImpl translator;
+	
+	@Before
+	public void setUp() {
+		translator = new BahmniOrderReferenceTranslatorImpl(serviceRequestDao, medicationRequestDao);
+	}
+	
+	@After
+	public void tearDown() {
+		ReferenceResolutionContextHolder.close();
+	}
+	
+	@Test
+	public void shouldResolvePrefetchedServiceRequestsWithoutFurtherLookups() {
+		Order cbc = exampleOrder("cbc-uuid");
+		Order lipidPanel = exampleOrder("lipid-panel-uuid");
+		List<Reference> basedOn = Arrays.asList(new Reference("ServiceRequest/cbc-uuid"),
+		    new Reference("ServiceRequest/lipid-panel-uuid"));
+		when(serviceRequestDao.get(new HashSet<>(Arrays.asList("cbc-uuid", "lipid-panel-uuid"))))
+		        .thenReturn(Arrays.asList(lipidPanel, cbc));
+		
+		ReferenceResolutionContextHolder.open();
+		translator.prefetch(basedOn);
+		
+		assertSame(cbc, translator.toOpenmrsType(basedOn.get(0)));
+		assertSame(lipidPanel, translator.toOpenmrsType(basedOn.get(1)));
+		verify(serviceRequestDao, never()).get(anyString());
+	}
+	
+	@Test
+	public void shouldResolveServiceRequestsMissingFromPrefetchOneByOne() {
+		Order voidedOrder = exampleOrder("voided-uuid");
+		Reference reference = new Reference("ServiceRequest/voided-uuid");
+		when(serviceRequestDao.get("voided-uuid")).thenReturn(voidedOrder);
+		
+		ReferenceResolutionContextHolder.open();
+		translator.prefetch(Arrays.asList(reference, new Reference("MedicationRequest/drug-order-uuid")));
+		
+		assertSame(voidedOrder, translator.toOpenmrsType(reference));
+		verify(serviceRequestDao).get(new HashSet<>(Arrays.asList("voided-uuid")));
+	}
+	
+	@Test
+	public void shouldNotPrefetchOutsideOfBundleOperation() {
+		translator.prefetch(Arrays.asList(new Reference("ServiceRequest/cbc-uuid")));
+		
+		verify(serviceRequestDao, never()).get(anyCollection());
+	}
+	
+	private Order exampleOrder(String uuid) {
+		Order order = new Order();
+		order.setUuid(uuid);
+		return order;
+	}
+}
@@ -48,7 +48,7 @@ public class BahmniPatientTranslatorImplTest {
 		phoneType.setFormat("java.lang.String");
 
 		slugToTypeMap = Collections.singletonMap("phonenumber", phoneType);
-		when(personAttributeTranslator.buildSlugToTypeMap()).thenReturn(slugToTypeMap);
+		when(personAttributeTranslator.getSlugToTypeMap()).thenReturn(slugToTypeMap);
 	}
 
 	// --- addPersonAttributeExtensions ---
@@ -186,7 +186,7 @@ public class BaseAttributeTranslatorRegistryTest {
 		}
 		
 		@Override
-		protected String getExtensionUrlPrefix() {
+		public String getExtensionUrlPrefix() {
 			return extensionUrlPrefix;
 		}
 		
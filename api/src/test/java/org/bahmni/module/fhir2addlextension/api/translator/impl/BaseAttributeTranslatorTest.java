@@ -70,6 +70,20 @@ public class BaseAttributeTranslatorTest {
 		assertEquals("Test String Attribute", result.get().getName());
 	}
 	
+	@Test
+	public void shouldResolveAttributeTypesAgainWhenActiveAttributeTypesAreReloaded() {
+		String extUrl = TEST_EXT_URL_PREFIX + "new-attribute";
+		assertFalse(attributeTranslator.getAttributeType(extUrl).isPresent());
+		
+		attributeTranslator.setAttributeTypes(Collections.singletonList(createAttributeType("New Attribute",
+		    "org.openmrs.customdatatype.datatype.FreeTextDatatype", 1)));
+		
+		Optional<FhirDocumentReferenceAttributeType> result = attributeTranslator.getAttributeType(extUrl);
+		assertTrue(result.isPresent());
+		assertEquals("New Attribute", result.get().getName());
+		assertFalse(attributeTranslator.getAttributeType(TEST_EXT_URL_PREFIX + "test-string-attribute").isPresent());
+	}
+	
 	@Test
 	public void shouldReturnEmptyForInvalidAttributeName() {
 		String extUrl = TEST_EXT_URL_PREFIX + "non-existent-attribute";
@@ -166,14 +180,14 @@ public class BaseAttributeTranslatorTest {
 	
 	private static class TestAttributeTranslator extends BaseAttributeTranslator<FhirDocumentReferenceAttribute, FhirDocumentReferenceAttributeType> {
 		
-		private final List<FhirDocumentReferenceAttributeType> attributeTypes;
+		private List<FhirDocumentReferenceAttributeType> attributeTypes;
 		
 		public TestAttributeTranslator(List<FhirDocumentReferenceAttributeType> attributeTypes) {
 			this.attributeTypes = attributeTypes;
 		}
 		
 		@Override
-		protected String getExtensionUrlPrefix() {
+		public String getExtensionUrlPrefix() {
 			return TEST_EXT_URL_PREFIX;
 		}
 		
@@ -195,5 +209,9 @@ public class BaseAttributeTranslatorTest {
 		public boolean supportsUrl(String extUrl) {
 			return supports(extUrl);
 		}
+		
+		public void setAttributeTypes(List<FhirDocumentReferenceAttributeType> attributeTypes) {
+			this.attributeTypes = attributeTypes;
+		}
 	}
 }
@@ -13,9 +13,12 @@ import org.openmrs.PersonAttributeType;
 import org.openmrs.api.PersonService;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -78,19 +81,19 @@ public class PersonAttributeExtensionTranslatorImplTest {
 	}
 
 	@Test
-	public void buildSlugToTypeMap_shouldHandleDuplicateSlugs() {
+	public void getSlugToTypeMap_shouldHandleDuplicateSlugs() {
 		PersonAttributeType duplicate = new PersonAttributeType();
 		duplicate.setUuid("dup-uuid");
 		duplicate.setName("phoneNumber");
 		when(personService.getAllPersonAttributeTypes(false)).thenReturn(Arrays.asList(phoneType, duplicate));
 
-		Map<String, PersonAttributeType> map = translator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
 		assertEquals("phone-uuid", map.get("phonenumber").getUuid());
 	}
 
 	@Test
 	public void resolveType_shouldMatchBySlugName() {
-		Map<String, PersonAttributeType> map = translator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
 		PersonAttributeType result = translator.resolveType(PREFIX + "phonenumber", map);
 		assertNotNull(result);
 		assertEquals("phone-uuid", result.getUuid());
@@ -98,19 +101,43 @@ public class PersonAttributeExtensionTranslatorImplTest {
 
 	@Test
 	public void resolveType_shouldReturnNullForUnknownSlug() {
-		Map<String, PersonAttributeType> map = translator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
 		assertNull(translator.resolveType(PREFIX + "unknown", map));
 	}
 
 	@Test
 	public void resolveType_shouldReturnNullForNonPatientUrl() {
-		Map<String, PersonAttributeType> map = translator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
 		assertNull(translator.resolveType("http://fhir.bahmni.org/ext/service-request/something", map));
 	}
 
 	@Test
 	public void resolveType_shouldReturnNullForNullUrl() {
-		Map<String, PersonAttributeType> map = translator.buildSlugToTypeMap();
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
 		assertNull(translator.resolveType(null, map));
 	}
+
+	@Test
+	public void getSlugToTypeMap_shouldLoadAttributeTypesOnceForReadsAndWrites() {
+		translator.toFhirResource(new PersonAttribute(phoneType, "+919876543210"));
+		translator.toFhirResource(new PersonAttribute(boolType, "true"));
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
+
+		assertSame(map, translator.getSlugToTypeMap());
+		verify(personService, times(1)).getAllPersonAttributeTypes(false);
+	}
+
+	@Test
+	public void clearSlugToTypeMap_shouldRebuildMapFromCurrentAttributeTypes() {
+		assertNotNull(translator.getSlugToTypeMap().get("phonenumber"));
+
+		phoneType.setName("mobileNumber");
+		when(personService.getAllPersonAttributeTypes(false)).thenReturn(Collections.singletonList(phoneType));
+		translator.clearSlugToTypeMap();
+
+		Map<String, PersonAttributeType> map = translator.getSlugToTypeMap();
+		assertNull(map.get("phonenumber"));
+		assertEquals("phone-uuid", map.get("mobilenumber").getUuid());
+		assertEquals(PREFIX + "mobilenumber", translator.toFhirResource(new PersonAttribute(phoneType, "1")).getUrl());
+	}
 }
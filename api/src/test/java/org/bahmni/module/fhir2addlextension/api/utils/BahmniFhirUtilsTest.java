@@ -7,7 +7,6 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Optional;
 
 import static org.bahmni.module.fhir2addlextension.api.TestDataFactory.loadDiagnosticReportBundle;
 
@@ -39,15 +38,6 @@ public class BahmniFhirUtilsTest {
 		Assert.assertEquals("123", BahmniFhirUtils.extractId(reference));
 	}
 	
-	@Test
-	public void shouldFindResourceInBundle() throws IOException {
-		Bundle reportBundle = loadDiagnosticReportBundle("example-diagnostic-report-with-encounter-and-service-request-reference-and-result-observation.json");
-		Optional<Observation> observation = BahmniFhirUtils.findResourceInBundle(reportBundle,
-		    "49a86246-4004-42eb-9bdc-f542f93f9228", Observation.class);
-		Assert.assertTrue(observation.isPresent());
-		Assert.assertEquals("1331AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", observation.get().getCode().getCoding().get(0).getCode());
-	}
-	
 	@Test
 	public void shouldFindResourceOfTypeInBundle() throws IOException {
 		Bundle reportBundle = loadDiagnosticReportBundle("example-diagnostic-report-bundle-with-encounter-reference.json");
@@ -0,0 +1,54 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.bahmni.module.fhir2addlextension.api.TestDataFactory.loadDiagnosticReportBundle;
+
+public class BundleResourceIndexTest {
+	
+	@Test
+	public void shouldFindResourceInBundleById() throws IOException {
+		Bundle reportBundle = loadDiagnosticReportBundle("example-diagnostic-report-with-encounter-and-service-request-reference-and-result-observation.json");
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(reportBundle);
+		Optional<Observation> observation = bundleIndex.findResource("49a86246-4004-42eb-9bdc-f542f93f9228",
+		    Observation.class);
+		Assert.assertTrue(observation.isPresent());
+		Assert.assertEquals("1331AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", observation.get().getCode().getCoding().get(0).getCode());
+	}
+	
+	@Test
+	public void shouldFindResourceByFullUrlAndReferenceForms() {
+		Bundle bundle = new Bundle();
+		Observation observation = new Observation();
+		bundle.addEntry().setFullUrl("urn:uuid:obs-1").setResource(observation);
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(bundle);
+		
+		Assert.assertSame(observation, bundleIndex.findResource("obs-1", Observation.class).get());
+		Assert.assertSame(observation, bundleIndex.findResource("urn:uuid:obs-1", Observation.class).get());
+		Assert.assertSame(observation, bundleIndex.findResource("Observation/obs-1", Observation.class).get());
+		Assert.assertSame(observation, bundleIndex.findEntryByFullUrl("urn:uuid:obs-1").get().getResource());
+	}
+	
+	@Test
+	public void shouldOnlyFindResourcesOfRequestedType() {
+		Bundle bundle = new Bundle();
+		Observation observation = new Observation();
+		bundle.addEntry().setFullUrl("urn:uuid:shared-id").setResource(observation);
+		Encounter encounter = new Encounter();
+		encounter.setId("shared-id");
+		bundle.addEntry().setResource(encounter);
+		BundleResourceIndex bundleIndex = BundleResourceIndex.of(bundle);
+		
+		Assert.assertSame(encounter, bundleIndex.findResource("shared-id", Encounter.class).get());
+		Assert.assertSame(observation, bundleIndex.findResource("shared-id", Observation.class).get());
+		Assert.assertFalse(bundleIndex.findResource("unknown-id", Observation.class).isPresent());
+		Assert.assertFalse(bundleIndex.findEntryByFullUrl("shared-id").isPresent());
+	}
+}
@@ -0,0 +1,38 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+
+public class DiagnosticReportBundlePatchTest {
+	
+	@Test
+	public void shouldReaddressReportOnlyPatchToReport() {
+		Optional<String> reportPatch = DiagnosticReportBundlePatch.toReportPatch("["
+		        + "{\"op\": \"replace\", \"path\": \"/entry/0/resource/status\", \"value\": \"final\"},"
+		        + "{\"op\": \"move\", \"from\": \"/entry/0/resource/conclusion\", \"path\": \"/entry/0/resource/note\"}]");
+		
+		Assert.assertTrue(reportPatch.isPresent());
+		Assert.assertEquals("[{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"final\"},"
+		        + "{\"op\":\"move\",\"from\":\"/conclusion\",\"path\":\"/note\"}]",
+		    reportPatch.get());
+	}
+	
+	@Test
+	public void shouldNotReaddressPatchTouchingOtherEntries() {
+		Assert.assertFalse(DiagnosticReportBundlePatch.toReportPatch("["
+		        + "{\"op\": \"replace\", \"path\": \"/entry/0/resource/status\", \"value\": \"final\"},"
+		        + "{\"op\": \"add\", \"path\": \"/entry/-\", \"value\": {}}]").isPresent());
+		Assert.assertFalse(DiagnosticReportBundlePatch.toReportPatch(
+		    "[{\"op\": \"copy\", \"from\": \"/entry/1/resource/code\", \"path\": \"/entry/0/resource/code\"}]").isPresent());
+		Assert.assertFalse(DiagnosticReportBundlePatch.toReportPatch(
+		    "[{\"op\": \"replace\", \"path\": \"/entry/0/resource\", \"value\": {}}]").isPresent());
+	}
+	
+	@Test
+	public void shouldNotReaddressOtherPatchFormats() {
+		Assert.assertFalse(DiagnosticReportBundlePatch.toReportPatch("{\"resourceType\": \"Parameters\"}").isPresent());
+		Assert.assertFalse(DiagnosticReportBundlePatch.toReportPatch("not json").isPresent());
+	}
+}
@@ -0,0 +1,110 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DiagnosticReport;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openmrs.module.fhir2.api.util.JsonPatchUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares applying JSON Patches to a DiagnosticReport bundle of result observations through JsonPatchUtils, which
+ * encodes the bundle, patches the JSON and parses it back, with applying them in the HAPI model. The patches are the
+ * usual ones for a lab report: finalising the report with a conclusion, and correcting the value of a result. Run with
+ * {@code mvn -pl api test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.bahmni.module.fhir2addlextension.api.utils.FhirJsonPatchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FhirJsonPatchBenchmark {
+
+	private static final String FINALISE_REPORT = "["
+	        + "{\"op\": \"replace\", \"path\": \"/entry/0/resource/status\", \"value\": \"final\"},"
+	        + "{\"op\": \"add\", \"path\": \"/entry/0/resource/conclusion\", \"value\": \"Within normal limits\"}]";
+
+	private static final String CORRECT_RESULT = "["
+	        + "{\"op\": \"test\", \"path\": \"/entry/12/resource/status\", \"value\": \"preliminary\"},"
+	        + "{\"op\": \"replace\", \"path\": \"/entry/12/resource/valueQuantity/value\", \"value\": 13.4},"
+	        + "{\"op\": \"replace\", \"path\": \"/entry/12/resource/status\", \"value\": \"final\"}]";
+
+	@Param({ "20", "50", "100" })
+	private int resultCount;
+
+	private FhirContext fhirContext;
+
+	private Bundle bundle;
+
+	@Setup
+	public void setup() {
+		fhirContext = FhirContext.forR4();
+		bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.COLLECTION);
+		DiagnosticReport report = new DiagnosticReport();
+		report.setId("report-uuid");
+		report.setStatus(DiagnosticReport.DiagnosticReportStatus.PRELIMINARY);
+		report.getCode().addCoding().setCode("cbc-concept-uuid").setDisplay("Complete blood count");
+		report.setSubject(new Reference("Patient/patient-uuid"));
+		report.setEncounter(new Reference("Encounter/encounter-uuid"));
+		report.addBasedOn(new Reference("ServiceRequest/order-uuid"));
+		bundle.addEntry().setFullUrl("urn:uuid:report-uuid").setResource(report);
+		for (int i = 0; i < resultCount; i++) {
+			Observation observation = new Observation();
+			observation.setId("obs-uuid-" + i);
+			observation.setStatus(Observation.ObservationStatus.PRELIMINARY);
+			observation.getCode().addCoding().setCode("test-concept-uuid-" + i).setDisplay("Test " + i);
+			observation.setSubject(new Reference("Patient/patient-uuid"));
+			observation.setEncounter(new Reference("Encounter/encounter-uuid"));
+			observation.setValue(new Quantity().setValue(new BigDecimal("12.5")).setUnit("g/dL")
+			        .setSystem("http://unitsofmeasure.org").setCode("g/dL"));
+			observation.getReferenceRangeFirstRep().setLow(new Quantity(11)).setHigh(new Quantity(16));
+			bundle.addEntry().setFullUrl("urn:uuid:obs-uuid-" + i).setResource(observation);
+			report.addResult(new Reference("urn:uuid:obs-uuid-" + i));
+		}
+	}
+
+	@Benchmark
+	public Bundle finaliseReportThroughJson() {
+		return JsonPatchUtils.applyJsonPatch(fhirContext, bundle, FINALISE_REPORT);
+	}
+
+	@Benchmark
+	public Bundle finaliseReportInModel() {
+		return FhirJsonPatch.applyInModel(fhirContext, bundle, FINALISE_REPORT).get();
+	}
+
+	@Benchmark
+	public Bundle correctResultThroughJson() {
+		return JsonPatchUtils.applyJsonPatch(fhirContext, bundle, CORRECT_RESULT);
+	}
+
+	@Benchmark
+	public Bundle correctResultInModel() {
+		return FhirJsonPatch.applyInModel(fhirContext, bundle, CORRECT_RESULT).get();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FhirJsonPatchBenchmark.class.getSimpleName()).build()).run();
+	}
+}
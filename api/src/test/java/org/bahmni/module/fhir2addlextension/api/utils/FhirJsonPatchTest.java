@@ -0,0 +1,96 @@
+package org.bahmni.module.fhir2addlextension.api.utils;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DiagnosticReport;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.util.JsonPatchUtils;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.bahmni.module.fhir2addlextension.api.TestDataFactory.loadDiagnosticReportBundle;
+
+public class FhirJsonPatchTest {
+
+	private static final FhirContext FHIR_CONTEXT = FhirContext.forR4();
+
+	@Test
+	public void shouldPatchLikeJsonPatchUtils() {
+		DiagnosticReport report = exampleReport();
+		String patchBody = "["
+		        + "{\"op\": \"test\", \"path\": \"/subject/reference\", \"value\": \"Patient/patient-uuid-1\"},"
+		        + "{\"op\": \"replace\", \"path\": \"/status\", \"value\": \"final\"},"
+		        + "{\"op\": \"add\", \"path\": \"/conclusion\", \"value\": \"Within normal limits\"},"
+		        + "{\"op\": \"add\", \"path\": \"/code/coding/0/display\", \"value\": \"Complete blood count\"},"
+		        + "{\"op\": \"remove\", \"path\": \"/result/0\"},"
+		        + "{\"op\": \"add\", \"path\": \"/result/1\", \"value\": {\"reference\": \"Observation/obs-3\"}},"
+		        + "{\"op\": \"add\", \"path\": \"/result/-\", \"value\": {\"reference\": \"Observation/obs-4\"}}]";
+
+		Optional<DiagnosticReport> patchedReport = FhirJsonPatch.applyInModel(FHIR_CONTEXT, report, patchBody);
+
+		Assert.assertTrue(patchedReport.isPresent());
+		Assert.assertEquals(
+		    FHIR_CONTEXT.newJsonParser().encodeResourceToString(JsonPatchUtils.applyJsonPatch(FHIR_CONTEXT, report, patchBody)),
+		    FHIR_CONTEXT.newJsonParser().encodeResourceToString(patchedReport.get()));
+		Assert.assertEquals(DiagnosticReport.DiagnosticReportStatus.REGISTERED, report.getStatus());
+		Assert.assertEquals(2, report.getResult().size());
+	}
+
+	@Test
+	public void shouldAddToEmptyList() {
+		DiagnosticReport report = exampleReport();
+
+		Optional<DiagnosticReport> patchedReport = FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"add\", \"path\": \"/presentedForm/-\", \"value\": {\"contentType\": \"application/pdf\","
+		            + " \"url\": \"https://example.org/reports/lab-result-123.pdf\", \"title\": \"Lab Result PDF\"}}]");
+
+		Assert.assertTrue(patchedReport.isPresent());
+		Assert.assertEquals(1, patchedReport.get().getPresentedForm().size());
+		Assert.assertEquals("https://example.org/reports/lab-result-123.pdf",
+		    patchedReport.get().getPresentedFormFirstRep().getUrl());
+		Assert.assertFalse(report.hasPresentedForm());
+	}
+
+	@Test
+	public void shouldLeaveUnsupportedPatchesToJsonPatchUtils() {
+		DiagnosticReport report = exampleReport();
+
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"move\", \"from\": \"/result/0\", \"path\": \"/result/1\"}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"remove\", \"path\": \"/basedOn\"}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"add\", \"path\": \"/extension/-\", \"value\": {\"url\": \"http://example.org\"}}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"replace\", \"path\": \"/conclusion\", \"value\": \"Normal\"}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"replace\", \"path\": \"/status\", \"value\": 5}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report,
+		    "[{\"op\": \"test\", \"path\": \"/status\", \"value\": \"final\"}]").isPresent());
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, report, "{\"status\": \"final\"}").isPresent());
+	}
+
+	@Test
+	public void shouldLeavePatchAddingResourceToJsonPatchUtils() throws IOException {
+		Bundle bundle = loadDiagnosticReportBundle("diagnostic-report-bundle-for-patch-existing.json");
+		String patchBody = "[{\"op\": \"add\", \"path\": \"/entry/-\", \"value\": {\"fullUrl\": \"urn:uuid:new-obs-2\","
+		        + " \"resource\": {\"resourceType\": \"Observation\", \"status\": \"final\"}}}]";
+
+		Assert.assertFalse(FhirJsonPatch.applyInModel(FHIR_CONTEXT, bundle, patchBody).isPresent());
+	}
+
+	private DiagnosticReport exampleReport() {
+		DiagnosticReport report = new DiagnosticReport();
+		report.setId("report-uuid-1");
+		report.setStatus(DiagnosticReport.DiagnosticReportStatus.REGISTERED);
+		report.getCode().addCoding().setCode("cbc-concept-uuid");
+		report.setSubject(new Reference("Patient/patient-uuid-1"));
+		report.addBasedOn(new Reference("ServiceRequest/order-uuid-1"));
+		report.addResult(new Reference("Observation/obs-1"));
+		report.addResult(new Reference("Observation/obs-2"));
+		return report;
+	}
+}
@@ -1,6 +1,10 @@
 package org.bahmni.module.fhir2addlextension.api.utils;
 
 import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 
@@ -14,4 +18,31 @@ public class ModuleUtilsTest {
 		assertEquals("case-1-2-number", ModuleUtils.toSlugCase("Case 1 & 2 number"));
 		assertEquals("case-1-2-3-number", ModuleUtils.toSlugCase("Case 1 & 2 && 3 number"));
 	}
+	
+	@Test
+	public void shouldRunActionRightAwayWithoutActiveTransaction() {
+		AtomicInteger runs = new AtomicInteger();
+		
+		ModuleUtils.runAfterCommit(runs::incrementAndGet);
+		
+		assertEquals(1, runs.get());
+	}
+	
+	@Test
+	public void shouldRunActionOnlyAfterTransactionCommits() {
+		AtomicInteger runs = new AtomicInteger();
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			ModuleUtils.runAfterCommit(runs::incrementAndGet);
+			assertEquals(0, runs.get());
+			
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+			assertEquals(1, runs.get());
+		}
+		finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
 }